@@ -0,0 +1,292 @@
+package generation;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is a floorplan that keeps wallboards in bit planes,
+ * one bit per cell and direction in arrays of long values,
+ * such that 64 cells can be checked for wallboards at once.
+ *
+ * A sequence of wallboards is found by searching for the next
+ * set or cleared bit in a plane with {@link Long#numberOfTrailingZeros(long)}
+ * instead of checking cell by cell. This makes the iterator for
+ * sequences of wallboards and {@link #forEachWallRun(Floorplan.WallRunConsumer)},
+ * which the {@link ListOfWallsBuilder} uses to extract walls, much cheaper for large mazes. Checks with
+ * {@link #hasWall(int, int, CardinalDirection)} read a single bit.
+ *
+ * Horizontal sequences run along a row, so the planes for wallboards
+ * on top, bottom and on the left of cells (for crossing wallboards) are
+ * stored row by row. Vertical sequences run along a column, so the planes
+ * for wallboards on the left, right and on top of cells are also stored
+ * column by column. Each row (column) starts with a new long value.
+ * Writes update both copies of a plane.
+ *
+ * All other bits of a cell, e.g. borders and the visited flag,
+ * stay in the regular storage of the floorplan. Reading the full value
+ * of a cell puts the bits together, which is slower than
+ * for a regular floorplan, so this class is meant for mazes
+ * where walls are extracted or checked frequently.
+ */
+public class BitPlaneFloorplan extends Floorplan {
+	private final int rowWords ; // number of long values per row
+	private final int columnWords ; // number of long values per column
+	// row by row: bit (x,y) is bit x%64 of word y*rowWords + x/64
+	private final long[] topRows ;
+	private final long[] bottomRows ;
+	private final long[] leftRows ;
+	// column by column: bit (x,y) is bit y%64 of word x*columnWords + y/64
+	private final long[] leftColumns ;
+	private final long[] rightColumns ;
+	private final long[] topColumns ;
+
+	/**
+	 * Constructor
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 */
+	public BitPlaneFloorplan(int w, int h) {
+		super(w, h);
+		rowWords = (w + 63) >>> 6;
+		columnWords = (h + 63) >>> 6;
+		topRows = new long[h*rowWords];
+		bottomRows = new long[h*rowWords];
+		leftRows = new long[h*rowWords];
+		leftColumns = new long[w*columnWords];
+		rightColumns = new long[w*columnWords];
+		topColumns = new long[w*columnWords];
+	}
+	/**
+	 * Constructor that copies the content of the given floorplan.
+	 * @param other provides the cells to copy, can not be null
+	 */
+	public BitPlaneFloorplan(Floorplan other) {
+		this(other.getWidth(), other.getHeight());
+		copyCellsFrom(other);
+	}
+
+	@Override
+	public boolean hasWall(int x, int y, CardinalDirection dir) {
+		switch (dir) {
+		case North :
+			return isSet(topRows, y*rowWords, x);
+		case South :
+			return isSet(bottomRows, y*rowWords, x);
+		case West :
+			return isSet(leftColumns, x*columnWords, y);
+		case East :
+			return isSet(rightColumns, x*columnWords, y);
+		default:
+			throw new RuntimeException("Unsupported value in enum type") ;
+		}
+	}
+	@Override
+	public boolean hasNoWall(int x, int y, CardinalDirection dir) {
+		return !hasWall(x, y, dir);
+	}
+	@Override
+	public Iterator<int[]> iterator(int x, int y, CardinalDirection cd) {
+		return new PlaneSequenceIterator(x, y, cd);
+	}
+	@Override
+	protected void forEachWallRun(CardinalDirection cd, int line, WallRunConsumer consumer) {
+		final boolean horizontal = (CardinalDirection.North == cd || CardinalDirection.South == cd);
+		final long[] walls;
+		if (horizontal)
+			walls = (CardinalDirection.North == cd) ? topRows : bottomRows;
+		else
+			walls = (CardinalDirection.West == cd) ? leftColumns : rightColumns;
+		final long[] crossings = horizontal ? leftRows : topColumns;
+		final int words = horizontal ? rowWords : columnWords;
+		final int start = line*words;
+		final int limit = horizontal ? getWidth() : getHeight();
+		int position = 0;
+		while (true) {
+			final int begin = nextSetBit(walls, start, words, position, limit);
+			if (begin == limit)
+				return;
+			// same end as in PlaneSequenceIterator
+			position = Math.min(nextClearBit(walls, start, words, begin + 1, limit),
+					nextSetBit(crossings, start, words, begin + 1, limit));
+			consumer.accept(cd, line, begin, position);
+		}
+	}
+
+	////////////////// storage ////////////////////////////////////////////////
+	@Override
+	protected int readCell(int index) {
+		final int x = index % getWidth();
+		final int y = index / getWidth();
+		int result = super.readCell(index);
+		if (isSet(topRows, y*rowWords, x))
+			result |= CW_TOP;
+		if (isSet(bottomRows, y*rowWords, x))
+			result |= CW_BOT;
+		if (isSet(leftColumns, x*columnWords, y))
+			result |= CW_LEFT;
+		if (isSet(rightColumns, x*columnWords, y))
+			result |= CW_RIGHT;
+		return result;
+	}
+	@Override
+	protected int orCell(int index, int bitmask) {
+		final int old = readCell(index);
+		super.orCell(index, bitmask & ~CW_ALL);
+		if ((bitmask & CW_ALL) != 0)
+			updateWallboards(index, bitmask, true);
+		return old;
+	}
+	@Override
+	protected int andNotCell(int index, int bitmask) {
+		final int old = readCell(index);
+		super.andNotCell(index, bitmask & ~CW_ALL);
+		if ((bitmask & CW_ALL) != 0)
+			updateWallboards(index, bitmask, false);
+		return old;
+	}
+	@Override
+	protected void orCells(int from, int to, int bitmask) {
+		super.orCells(from, to, bitmask & ~CW_ALL);
+		if ((bitmask & CW_ALL) != 0) {
+			for (int i = from; i < to; i++)
+				updateWallboards(i, bitmask, true);
+		}
+	}
+	@Override
+	protected void andNotCells(int from, int to, int bitmask) {
+		super.andNotCells(from, to, bitmask & ~CW_ALL);
+		if ((bitmask & CW_ALL) != 0) {
+			for (int i = from; i < to; i++)
+				updateWallboards(i, bitmask, false);
+		}
+	}
+	/**
+	 * Sets or clears the wallboard bits of the given mask in all planes.
+	 */
+	private void updateWallboards(int index, int bitmask, boolean value) {
+		final int x = index % getWidth();
+		final int y = index / getWidth();
+		final int row = y*rowWords;
+		final int column = x*columnWords;
+		if ((bitmask & CW_TOP) != 0) {
+			setBit(topRows, row, x, value);
+			setBit(topColumns, column, y, value);
+		}
+		if ((bitmask & CW_BOT) != 0)
+			setBit(bottomRows, row, x, value);
+		if ((bitmask & CW_LEFT) != 0) {
+			setBit(leftRows, row, x, value);
+			setBit(leftColumns, column, y, value);
+		}
+		if ((bitmask & CW_RIGHT) != 0)
+			setBit(rightColumns, column, y, value);
+	}
+	private static boolean isSet(long[] plane, int start, int i) {
+		return (plane[start + (i >>> 6)] & (1L << (i & 63))) != 0;
+	}
+	private static void setBit(long[] plane, int start, int i, boolean value) {
+		if (value)
+			plane[start + (i >>> 6)] |= 1L << (i & 63);
+		else
+			plane[start + (i >>> 6)] &= ~(1L << (i & 63));
+	}
+	/**
+	 * Finds the next set bit in a row or column of a plane.
+	 * @param plane the bit plane
+	 * @param start index of the first word of the row or column
+	 * @param words number of words in the row or column
+	 * @param from index of the first bit to consider
+	 * @param limit number of cells in the row or column
+	 * @return index of the set bit or limit if there is none
+	 */
+	private static int nextSetBit(long[] plane, int start, int words, int from, int limit) {
+		if (from >= limit)
+			return limit;
+		int w = from >>> 6;
+		long word = plane[start + w] & (-1L << (from & 63));
+		while (0 == word) {
+			if (++w == words)
+				return limit;
+			word = plane[start + w];
+		}
+		return Math.min(limit, (w << 6) + Long.numberOfTrailingZeros(word));
+	}
+	/**
+	 * Finds the next cleared bit in a row or column of a plane.
+	 * Parameters and result as for nextSetBit.
+	 */
+	private static int nextClearBit(long[] plane, int start, int words, int from, int limit) {
+		if (from >= limit)
+			return limit;
+		int w = from >>> 6;
+		long word = ~plane[start + w] & (-1L << (from & 63));
+		while (0 == word) {
+			if (++w == words)
+				return limit;
+			word = ~plane[start + w];
+		}
+		return Math.min(limit, (w << 6) + Long.numberOfTrailingZeros(word));
+	}
+
+	/**
+	 * Iterator that delivers the same [start,end] pairs as the iterator
+	 * of the Floorplan class but finds them with word-at-a-time scans.
+	 * A sequence starts at a cell with a wallboard in the given direction
+	 * and ends at the first cell without that wallboard or at the first cell
+	 * with a crossing wallboard on its left (top) side.
+	 */
+	private class PlaneSequenceIterator implements Iterator<int[]> {
+		private final long[] walls ; // plane with wallboards of the given direction
+		private final long[] crossings ; // plane with crossing wallboards
+		private final int start ; // index of first word of the row or column
+		private final int words ; // number of words in the row or column
+		private final int limit ; // number of cells in the row or column
+		private int position ; // next cell to consider
+		private int[] next ; // next sequence of wallboards
+
+		PlaneSequenceIterator(int x, int y, CardinalDirection cd) {
+			switch (cd) {
+			case North :
+			case South :
+				walls = (CardinalDirection.North == cd) ? topRows : bottomRows;
+				crossings = leftRows;
+				start = y*rowWords;
+				words = rowWords;
+				limit = getWidth();
+				position = x;
+				break;
+			default:
+				walls = (CardinalDirection.West == cd) ? leftColumns : rightColumns;
+				crossings = topColumns;
+				start = x*columnWords;
+				words = columnWords;
+				limit = getHeight();
+				position = y;
+				break;
+			}
+			next = computeNextSequence();
+		}
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+		@Override
+		public int[] next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			int[] cursor = next;
+			next = computeNextSequence();
+			return cursor;
+		}
+		private int[] computeNextSequence() {
+			final int begin = nextSetBit(walls, start, words, position, limit);
+			if (begin == limit)
+				return null;
+			// the sequence ends where the wallboard is missing or a crossing wallboard starts
+			final int end = Math.min(nextClearBit(walls, start, words, begin + 1, limit),
+					nextSetBit(crossings, start, words, begin + 1, limit));
+			position = end;
+			return new int[] {begin, end};
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package generation;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.BooleanSupplier;
+
+/**
+ * This class is a floorplan that several threads can change at the same time,
+ * e.g., threads that carve different parts of a single huge maze.
+ *
+ * Each change to a cell is a single atomic read-modify-write operation
+ * on the int array of cells, done with a VarHandle. Concurrent changes
+ * to different bits of the same cell do not get lost and each thread
+ * sees the latest value of a cell.
+ *
+ * A wallboard between two cells is kept in both cells, so adding or deleting
+ * it changes two cells one after the other. Concurrent deletions commute,
+ * so threads that only tear down wallboards always leave both sides of
+ * each wallboard in agreement. If threads may add and delete the same
+ * wallboard at the same time, the floorplan needs to be created in striped
+ * mode: wallboard operations then hold the locks of the stripes of both cells,
+ * such that the two cells change together with respect to other
+ * wallboard operations. Cells are assigned to a fixed number of
+ * stripes, so a single lock covers many cells.
+ *
+ * Parallel builders claim cells and wallboards with
+ * {@link #claimCell(int, int)} and {@link #tearDown(Wallboard)}, which tell
+ * the calling thread if it was the one that made the change.
+ *
+ * The fingerprint is not maintained along with changes as that would make
+ * each change a contended update of a single value, it is computed from
+ * scratch with each call of {@link #fingerprint()}.
+ *
+ * The journal and the index of cells in rooms are not safe for concurrent use,
+ * so their updates hold a lock of their own. Changes of wallboards skip the lock
+ * unless a journal records them. A journal records each change exactly once,
+ * including both sides of a wallboard that {@link #tearDown(Wallboard)} claims.
+ * Entries of different threads interleave, so for {@link #undoTo(long)} to restore
+ * an earlier state, threads must not change the same bits at the same time,
+ * e.g. by adding and deleting the same wallboard, unless the floorplan is in
+ * striped mode. Start and stop a journal and undo changes while no other
+ * thread changes the floorplan.
+ */
+public class ConcurrentFloorplan extends Floorplan {
+	private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(int[].class);
+
+	private final int[] cells ; // width * height array of cells, same layout as in Floorplan
+	private final Object[] locks ; // locks for stripes of cells, null if not in striped mode
+	private final Object bookkeeping = new Object() ; // guards the journal and the room index
+
+	/**
+	 * Constructor for a floorplan with atomic updates of single cells.
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 */
+	public ConcurrentFloorplan(int w, int h) {
+		this(w, h, 0);
+	}
+	/**
+	 * Constructor
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 * @param stripes number of locks for wallboard operations, 0 for no locks
+	 */
+	public ConcurrentFloorplan(int w, int h, int stripes) {
+		super(w, h, false);
+		if (stripes < 0)
+			throw new IllegalArgumentException("Number of stripes must not be negative: " + stripes);
+		cells = new int[w*h];
+		if (0 == stripes) {
+			locks = null;
+		}
+		else {
+			locks = new Object[stripes];
+			for (int i = 0; i < stripes; i++)
+				locks[i] = new Object();
+		}
+	}
+	/**
+	 * Tells if wallboard operations hold locks.
+	 * @return true if in striped mode, false otherwise
+	 */
+	public boolean isStriped() {
+		return null != locks;
+	}
+	/**
+	 * Marks the given cell as visited if no other thread did so before.
+	 * @param x coordinate of cell, {@code 0 <= x < width}
+	 * @param y coordinate of cell, {@code 0 <= y < height}
+	 * @return true if this call marked the cell as visited, false if it was visited already
+	 */
+	public boolean claimCell(int x, int y) {
+		final int index = getIndex(x, y);
+		if (0 == (andNotCell(index, CW_VISITED) & CW_VISITED))
+			return false;
+		recordChange(index, index+1, CW_VISITED, false);
+		return true;
+	}
+	/**
+	 * Deletes the given wallboard on both sides if it is still there.
+	 * If several threads try to tear down the same wallboard, from either side,
+	 * exactly one of them succeeds: the wallboard is claimed with a single atomic
+	 * operation on the side of the cell with the lower index, and only the thread
+	 * that clears it there deletes the other side as well.
+	 * @param wallboard provides (x,y) coordinate of cell and direction,
+	 * the neighboring cell must be inside the maze
+	 * @return true if this call deleted the wallboard, false if it was not there
+	 */
+	public boolean tearDown(Wallboard wallboard) {
+		return withLocks(wallboard, () -> {
+			final int index = getIndex(wallboard.getX(), wallboard.getY());
+			final int neighbor = getIndex(wallboard.getNeighborX(), wallboard.getNeighborY());
+			final CardinalDirection cd = wallboard.getDirection();
+			final int bit = (index < neighbor) ? getCWConstantForDirection(cd)
+					: getCWConstantForDirection(cd.oppositeDirection());
+			final int claimed = Math.min(index, neighbor);
+			if (0 == (andNotCell(claimed, bit) & bit))
+				return false;
+			recordChange(claimed, claimed+1, bit, false);
+			super.deleteWallboard(wallboard); // the other side
+			return true;
+		});
+	}
+	@Override
+	public void deleteWallboard(Wallboard wallboard) {
+		withLocks(wallboard, () -> {
+			super.deleteWallboard(wallboard);
+			return true;
+		});
+	}
+	@Override
+	public void addWallboard(Wallboard wallboard, boolean internalWall) {
+		withLocks(wallboard, () -> {
+			super.addWallboard(wallboard, internalWall);
+			return true;
+		});
+	}
+	/**
+	 * Builds the room index on first use while holding the lock
+	 * for the room index, such that concurrent changes of rooms are not lost.
+	 */
+	@Override
+	public boolean areaOverlapsWithRoom(int rx, int ry, int rxl, int ryl) {
+		synchronized (bookkeeping) {
+			return super.areaOverlapsWithRoom(rx, ry, rxl, ryl);
+		}
+	}
+	/**
+	 * Builds the room index on first use while holding the lock
+	 * for the room index, such that concurrent changes of rooms are not lost.
+	 */
+	@Override
+	public int countCellsInRoom(int rx, int ry, int rxl, int ryl) {
+		synchronized (bookkeeping) {
+			return super.countCellsInRoom(rx, ry, rxl, ryl);
+		}
+	}
+	/**
+	 * Serializes updates of the journal and the room index.
+	 * Changes with nothing to record return right away without the lock.
+	 */
+	@Override
+	protected void recordChange(int from, int to, int bitmask, boolean set) {
+		if (null == getJournal() && 0 == (bitmask & CW_IN_ROOM))
+			return;
+		synchronized (bookkeeping) {
+			super.recordChange(from, to, bitmask, set);
+		}
+	}
+	/**
+	 * Computes the fingerprint from the current content.
+	 * The result is only meaningful if no other thread changes the floorplan.
+	 */
+	@Override
+	public long fingerprint() {
+		return computeFingerprint();
+	}
+	/**
+	 * Performs the operation while holding the locks for both cells of the wallboard
+	 * in striped mode. Locks are taken in the order of their stripes to avoid deadlocks.
+	 */
+	private boolean withLocks(Wallboard wallboard, BooleanSupplier operation) {
+		if (null == locks)
+			return operation.getAsBoolean();
+		int first = getIndex(wallboard.getX(), wallboard.getY()) % locks.length;
+		int second = first;
+		final int nx = wallboard.getNeighborX();
+		final int ny = wallboard.getNeighborY();
+		if (0 <= nx && nx < getWidth() && 0 <= ny && ny < getHeight())
+			second = getIndex(nx, ny) % locks.length;
+		if (second < first) {
+			final int tmp = first;
+			first = second;
+			second = tmp;
+		}
+		synchronized (locks[first]) {
+			synchronized (locks[second]) {
+				return operation.getAsBoolean();
+			}
+		}
+	}
+
+	////////////////// storage ////////////////////////////////////////////////
+	@Override
+	protected int readCell(int index) {
+		return (int)CELLS.getVolatile(cells, index);
+	}
+	@Override
+	protected int orCell(int index, int bitmask) {
+		return (int)CELLS.getAndBitwiseOr(cells, index, bitmask);
+	}
+	@Override
+	protected int andNotCell(int index, int bitmask) {
+		return (int)CELLS.getAndBitwiseAnd(cells, index, ~bitmask);
+	}
+}
@@ -0,0 +1,145 @@
+package generation;
+
+/**
+ * This class is a floorplan that can hand out immutable snapshots of its
+ * content, such that other threads can read a consistent state of the
+ * floorplan without locks while it continues to change.
+ *
+ * Cells are kept in chunks of {@code CHUNK_CELLS} consecutive cells.
+ * A snapshot copies the table of chunk references, not the cells,
+ * and from then on the snapshot and this floorplan share all chunks.
+ * The first change to a shared chunk copies that chunk, so a snapshot
+ * costs time and memory in proportion to the number of chunks and the
+ * chunks that change afterwards. A new floorplan starts out with all
+ * chunks sharing a single chunk with 0 values.
+ *
+ * A single thread changes the floorplan and takes snapshots. A snapshot
+ * can be passed to any thread, e.g., one that draws the map. Its cells
+ * never change and are safely published by final fields, so readers
+ * never block the writer and never see a partial update.
+ * Any attempt to change a snapshot throws an UnsupportedOperationException.
+ * Note that the map and the first person view in the gui package only read 
+ * their floorplan, so they can draw a snapshot as well as the floorplan itself.
+ */
+public class CopyOnWriteFloorplan extends Floorplan {
+	/**
+	 * Number of cells in a chunk is 2^CHUNK_SHIFT.
+	 */
+	private static final int CHUNK_SHIFT = 10;
+	/**
+	 * Number of cells in a chunk.
+	 */
+	public static final int CHUNK_CELLS = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_CELLS - 1;
+	/**
+	 * Chunk with 0 values that all new floorplans share, never changes.
+	 */
+	private static final int[] ZERO_CHUNK = new int[CHUNK_CELLS];
+
+	private final int[][] chunks ; // chunks of cells, may be shared with snapshots
+	private final int[] owner ; // epoch in which a chunk was copied for this floorplan
+	private int epoch = 1 ; // increments with each snapshot, chunks of earlier epochs are shared
+
+	/**
+	 * Constructor
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 */
+	public CopyOnWriteFloorplan(int w, int h) {
+		super(w, h, false);
+		final int n = (w*h + CHUNK_MASK) >>> CHUNK_SHIFT;
+		chunks = new int[n][];
+		java.util.Arrays.fill(chunks, ZERO_CHUNK);
+		owner = new int[n]; // epoch 0, so no chunk is owned
+	}
+	/**
+	 * Constructor that copies the content of the given floorplan.
+	 * @param other provides the cells to copy, can not be null
+	 */
+	public CopyOnWriteFloorplan(Floorplan other) {
+		this(other.getWidth(), other.getHeight());
+		copyCellsFrom(other);
+	}
+	/**
+	 * Gives an immutable view of the current content.
+	 * @return a floorplan with the current content that does not change
+	 */
+	public Floorplan snapshot() {
+		epoch++; // from now on, all chunks are shared
+		// pass on the fingerprint if it is known, it is computed on demand otherwise
+		return new Snapshot(getWidth(), getHeight(), chunks.clone(),
+				isFingerprintValid(), isFingerprintValid() ? fingerprint() : 0);
+	}
+
+	////////////////// storage ////////////////////////////////////////////////
+	@Override
+	protected int readCell(int index) {
+		return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+	}
+	@Override
+	protected int orCell(int index, int bitmask) {
+		final int[] chunk = chunks[index >>> CHUNK_SHIFT];
+		final int old = chunk[index & CHUNK_MASK];
+		if ((old | bitmask) != old)
+			getOwnChunk(index >>> CHUNK_SHIFT)[index & CHUNK_MASK] = old | bitmask;
+		return old;
+	}
+	@Override
+	protected int andNotCell(int index, int bitmask) {
+		final int[] chunk = chunks[index >>> CHUNK_SHIFT];
+		final int old = chunk[index & CHUNK_MASK];
+		if ((old & ~bitmask) != old)
+			getOwnChunk(index >>> CHUNK_SHIFT)[index & CHUNK_MASK] = old & ~bitmask;
+		return old;
+	}
+	/**
+	 * Gives a chunk that is not shared with any snapshot, copies it if necessary.
+	 */
+	private int[] getOwnChunk(int c) {
+		if (owner[c] != epoch) {
+			chunks[c] = chunks[c].clone();
+			owner[c] = epoch;
+		}
+		return chunks[c];
+	}
+
+	/**
+	 * Read only floorplan on chunks that no longer change.
+	 * It keeps its own fingerprint such that readers on several threads
+	 * can ask for it.
+	 */
+	private static final class Snapshot extends Floorplan {
+		private final int[][] chunks ;
+		private boolean known ; // true if fingerprint is known, guarded by this
+		private long fingerprint ; // guarded by this
+
+		Snapshot(int w, int h, int[][] chunks, boolean known, long fingerprint) {
+			super(w, h, false);
+			this.chunks = chunks;
+			synchronized (this) { // fields are not final, publish them to other threads
+				this.known = known;
+				this.fingerprint = fingerprint;
+			}
+		}
+		@Override
+		public synchronized long fingerprint() {
+			if (!known) {
+				fingerprint = computeFingerprint();
+				known = true;
+			}
+			return fingerprint;
+		}
+		@Override
+		protected int readCell(int index) {
+			return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+		}
+		@Override
+		protected int orCell(int index, int bitmask) {
+			throw new UnsupportedOperationException("Floorplan snapshot is read only");
+		}
+		@Override
+		protected int andNotCell(int index, int bitmask) {
+			throw new UnsupportedOperationException("Floorplan snapshot is read only");
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package generation;
 
+import java.util.Arrays;
+
 /**
  * This class has the responsibility to provide the distance
  * for each cell to the exit of a maze.
@@ -29,6 +31,15 @@ package generation;
  * Refactored by Peter Kemper
  */
 public class Distance {
+	/**
+	 * Lists the possible ways to traverse the maze for the computation
+	 * of distances. A sequential traversal is the best choice for the
+	 * mazes of all skill levels, a parallel traversal splits each 
+	 * level of the breadth-first search across the cores of the machine
+	 * and helps for very large mazes only.
+	 */
+	public enum Traversal { Sequential, Parallel } ;
+	
 	/**
 	 * The width of the distance matrix, same as width of maze and cells
 	 */
@@ -46,6 +57,7 @@ public class Distance {
 	 * Warning: class does not enforce encapsulation
 	 * on dists. There are ways to set this reference,
 	 * obtain it and manipulate its content. 
+	 * The field is null while values are in compact storage.
 	 */
 	private int[][] dists; 
 	/** 
@@ -65,6 +77,48 @@ public class Distance {
 	 * to this instance.
 	 */
 	private int[] startPosition;
+	/**
+	 * Work queue for the breadth-first search in computeDists.
+	 * Kept as a field to avoid repeated allocations.
+	 */
+	private int[] queue;
+	/**
+	 * Optional matrix of dimension (width x height) that holds the index of the 
+	 * closest source for each position after a call to computeDistanceField.
+	 * Kept as a field to avoid repeated allocations.
+	 */
+	private int[][] labels;
+	/**
+	 * Tells if labels hold valid values for the current distance values.
+	 */
+	private boolean labelsValid;
+	/**
+	 * Marks positions that are affected by an added wallboard,
+	 * a position is marked if it carries the value of currentMark.
+	 * Allocated on demand for incremental repairs.
+	 */
+	private int[] marks;
+	private int currentMark;
+	/**
+	 * Bit patterns and (dx,dy) pairs for the four directions
+	 * in the order top, bottom, left, right.
+	 */
+	private static final int[] DIR_BITS = { Floorplan.CW_TOP, Floorplan.CW_BOT, Floorplan.CW_LEFT, Floorplan.CW_RIGHT };
+	private static final int[] DIR_X = { 0, 0, -1, 1 };
+	private static final int[] DIR_Y = { -1, 1, 0, 0 };
+	/**
+	 * Compact storage of distance values, see {@link #compact()}.
+	 * At most one of the arrays is not null and only if dists is null.
+	 * Values are stored row by row, the value for (x,y) is at index y*width+x.
+	 * The largest value of the element type represents INFINITY.
+	 */
+	private byte[] compactBytes;
+	private char[] compactChars;
+	private int[] compactInts;
+	/**
+	 * Counts changes of distance values, see {@link #getModificationCount()}.
+	 */
+	private int modifications;
 	
 	/**
 	 * Constructor
@@ -104,22 +158,38 @@ public class Distance {
 		width = distances.length;
 		height = distances[0].length;
 		this.dists = distances;
+		modifications++;
+		compactBytes = null;
+		compactChars = null;
+		compactInts = null;
 		// reset exit and start positions
 		// note: lazy evaluation in the sense that positions are
 		// computed on demand and then cached on corresponding
 		// fields exitPosition and startPosition
 		exitPosition = null;
 		startPosition = null;
+		labelsValid = false;
 	}
 	/**
 	 * Gets access to a width x height array of distances. 
 	 * Warning, this exposes the internal attribute
 	 * and is intended for read access only. 
 	 * Do not modify entries of the returned array.
+	 * If distance values are stored in compact form, the returned
+	 * array is a new copy of the values such that modifications
+	 * have no effect on this object.
 	 * @return array with distance values
 	 */
 	public int[][] getAllDistanceValues() {
-		return dists;
+		if (null != dists)
+			return dists;
+		int[][] result = new int[width][height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				result[x][y] = getDistanceValue(x, y);
+			}
+		}
+		return result;
 	}
 	/**
 	 * Gets the distance value for the given (x,y) position
@@ -128,7 +198,95 @@ public class Distance {
 	 * @return the distance value for the given (x,y) position
 	 */
 	public int getDistanceValue(int x, int y) {
-		return dists[x][y] ;
+		if (null != dists)
+			return dists[x][y] ;
+		// compact storage, one row after the other
+		final int index = y*width + x;
+		if (null != compactBytes) {
+			final int value = compactBytes[index] & 0xFF;
+			return (0xFF == value) ? INFINITY : value;
+		}
+		if (null != compactChars) {
+			final int value = compactChars[index];
+			return (Character.MAX_VALUE == value) ? INFINITY : value;
+		}
+		return compactInts[index];
+	}
+	/**
+	 * Switches to a compact storage of the current distance values
+	 * to save memory for mazes that are kept but no longer change.
+	 * All values are stored in a single array, row by row, with
+	 * an element type that is just wide enough for the maximum value: 
+	 * byte for values up to 254, char for values up to 65534 and int otherwise.
+	 * Java has no unsigned short, char is the unsigned 16 bit type
+	 * that covers twice the range of short.
+	 * Work arrays for computations are released.
+	 * Distance values remain available with {@link #getDistanceValue(int, int)}
+	 * and {@link #getAllDistanceValues()}. Methods that compute or repair 
+	 * distance values switch back to the regular storage.
+	 * A matrix that was given to {@link #setAllDistanceValues(int[][])} is
+	 * no longer shared after this call.
+	 */
+	public void compact() {
+		if (null == dists)
+			return; // already compact
+		int max = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (dists[x][y] != INFINITY && dists[x][y] > max)
+					max = dists[x][y];
+			}
+		}
+		final int n = width*height;
+		if (max < 0xFF) {
+			compactBytes = new byte[n];
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					compactBytes[y*width + x] = (byte)((INFINITY == dists[x][y]) ? 0xFF : dists[x][y]);
+				}
+			}
+		}
+		else if (max < Character.MAX_VALUE) {
+			compactChars = new char[n];
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					compactChars[y*width + x] = (char)((INFINITY == dists[x][y]) ? Character.MAX_VALUE : dists[x][y]);
+				}
+			}
+		}
+		else {
+			compactInts = new int[n];
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					compactInts[y*width + x] = dists[x][y];
+				}
+			}
+		}
+		dists = null;
+		queue = null;
+		labels = null;
+		labelsValid = false;
+		marks = null;
+	}
+	/**
+	 * Tells if distance values are in compact storage.
+	 * @return true if {@link #compact()} was called and values did not change since
+	 */
+	public boolean isCompact() {
+		return null == dists;
+	}
+	/**
+	 * Brings distance values back from compact storage into the 
+	 * width x height matrix such that they can be updated.
+	 */
+	private void expand() {
+		if (null != dists)
+			return;
+		int[][] values = getAllDistanceValues();
+		compactBytes = null;
+		compactChars = null;
+		compactInts = null;
+		dists = values;
 	}
 	/**
 	 * Compute distances for given cells object of a maze.
@@ -144,23 +302,39 @@ public class Distance {
 	 * Once called, client classes can use {@link #getDistanceValue(int, int)
 	 * getDistanceValue()}, {@link #getExitPosition() getExitPosition()}, 
 	 * and {@link #getStartPosition() getStartPosition()}.
+	 * The computation is performed sequentially.
 	 * @param cells with information on wallboards for a maze, can not be null, read only
 	 * @return exit position somewhere on the  border
 	 */
 	public int[] computeDistances(Floorplan cells) {
+		return computeDistances(cells, Traversal.Sequential);
+	}
+	/**
+	 * Compute distances for given cells object of a maze 
+	 * with the given kind of traversal. 
+	 * Both kinds of traversal deliver the same distance values,
+	 * exit and starting position, see {@link #computeDistances(Floorplan)}.
+	 * @param cells with information on wallboards for a maze, can not be null, read only
+	 * @param traversal selects a sequential or a parallel computation
+	 * @return exit position somewhere on the  border
+	 */
+	public int[] computeDistances(Floorplan cells, Traversal traversal) {
 		// constraint: cells must be of size (width x height)
-		
+		expand();
+		modifications++;
 		// Step 1: find a suitable exit position
 		// Heuristic:
 		// compute temporary distances for a starting point 
 		// (x,y) = (width/2,height/2) 
 		// which is located in the center of the maze
-		computeDists(cells, width/2, height/2);
+		computeDists(cells, width/2, height/2, traversal);
 		// figure out which position is the farthest on the border 
 		// to find a candidate for the exit position
 		exitPosition = getPositionWithMaxDistanceOnBorder();
 		// Step 2: compute distances with regards to the exit position
-		computeDists(cells, exitPosition[0], exitPosition[1]);
+		computeDists(cells, exitPosition[0], exitPosition[1], traversal);
+		startPosition = null; // computed on demand for the new values
+		labelsValid = false;
 		return exitPosition ;
 	}
 
@@ -216,6 +390,261 @@ public class Distance {
 			exitPosition = getPositionWithMinDistance() ;
 		return ((x == exitPosition[0]) && (y == exitPosition[1])) ;
 	}
+	/**
+	 * Computes a distance field for a set of source positions.
+	 * Each position (x,y) receives the number of steps to the 
+	 * closest source plus 1, such that sources carry a distance value
+	 * of 1 as the exit position does for {@link #computeDistances(Floorplan)}.
+	 * Positions that can not reach any source receive the INFINITY value.
+	 * All sources are processed in a single breadth-first search, 
+	 * so the effort is linear in the number of cells regardless of the 
+	 * number of sources.
+	 * Optionally, the method labels each position with the index of its closest 
+	 * source, ties are broken in favor of the source that is listed first.
+	 * The distance matrix and the matrix for labels are reused across
+	 * calls such that repeated computations do not allocate new arrays. 
+	 * As the distance values no longer refer to a single exit, 
+	 * cached exit and starting positions are reset.
+	 * @param cells with information on wallboards for a maze, can not be null, read only
+	 * @param sourcesX x coordinates of sources, {@code 0 <= sourcesX[i] < width}
+	 * @param sourcesY y coordinates of sources, {@code 0 <= sourcesY[i] < height}, same length as sourcesX
+	 * @param withLabels true if labels for the closest source are wanted, false otherwise
+	 */
+	public void computeDistanceField(Floorplan cells, int[] sourcesX, int[] sourcesY, boolean withLabels) {
+		assert (sourcesX.length == sourcesY.length) : "Coordinates of sources must match";
+		expand();
+		modifications++;
+		setAllDistanceValues(INFINITY) ;
+		exitPosition = null;
+		startPosition = null;
+		int[][] nearest = null;
+		if (withLabels) {
+			if (null == labels || labels.length != width || labels[0].length != height)
+				labels = new int[width][height];
+			nearest = labels;
+		}
+		final int[] queue = getQueue();
+		int sources = 0;
+		for (int i = 0; i < sourcesX.length; i++) {
+			final int x = sourcesX[i];
+			final int y = sourcesY[i];
+			if (dists[x][y] == 1)
+				continue; // duplicate source, first one wins
+			dists[x][y] = 1;
+			queue[sources++] = x*height + y;
+			if (withLabels)
+				nearest[x][y] = i;
+		}
+		final int reached = pushDistanceValuesBFS(cells, sources, nearest);
+		labelsValid = withLabels;
+		if (withLabels && reached < width*height)
+			markUnreachable(nearest);
+	}
+	/**
+	 * Gives the index of the source that is closest to the given (x,y) position.
+	 * Assumes that {@link #computeDistanceField(Floorplan, int[], int[], boolean)}
+	 * was called before with labels requested. 
+	 * @param x is the x coordinate, {@code 0 <= x < width}
+	 * @param y is the y coordinate, {@code 0 <= y < height}
+	 * @return index of closest source, -1 if no source is reachable or no labels are available
+	 */
+	public int getNearestSource(int x, int y) {
+		return labelsValid ? labels[x][y] : -1;
+	}
+	/**
+	 * Gives a number that changes each time this object computes, repairs
+	 * or is given new distance values. Clients that derive data from the
+	 * distance values can keep the number and compare it later to tell
+	 * if their data is outdated. Changes that bypass this object,
+	 * e.g. through the array of {@link #getAllDistanceValues()}, are not counted.
+	 * @return the current modification count
+	 */
+	public int getModificationCount() {
+		return modifications;
+	}
+	/**
+	 * Updates distance values after the given wallboard has been deleted
+	 * from the floorplan. An opening can only shorten paths, so
+	 * the method pushes smaller values from the opening into the maze 
+	 * and stops where values do not improve.
+	 * Positions with distance value 1 are considered the sources of
+	 * the distance values, i.e., the exit or the sources given to
+	 * {@link #computeDistanceField(Floorplan, int[], int[], boolean)},
+	 * and they keep their value. 
+	 * The effort is proportional to the number of positions that change.
+	 * Precondition: the distance values are valid for the floorplan before
+	 * the wallboard has been deleted, the wallboard is an internal wallboard.
+	 * @param cells with information on wallboards for a maze after the deletion, read only
+	 * @param wallboard the wallboard that has been deleted
+	 */
+	public void repairAfterWallboardDeleted(Floorplan cells, Wallboard wallboard) {
+		// counts even if no value changes, the opening may offer a new shortest path
+		modifications++;
+		final int x = wallboard.getX();
+		final int y = wallboard.getY();
+		final int nx = wallboard.getNeighborX();
+		final int ny = wallboard.getNeighborY();
+		if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+			return; // wallboard on the outside border, no neighbor to connect to
+		expand();
+		final int[] queue = getQueue();
+		int tail = 0;
+		// the side with the larger value can benefit from the other side
+		if (dists[x][y] != INFINITY && dists[nx][ny] > dists[x][y] + 1) {
+			dists[nx][ny] = dists[x][y] + 1;
+			queue[tail++] = nx*height + ny;
+		}
+		else if (dists[nx][ny] != INFINITY && dists[x][y] > dists[nx][ny] + 1) {
+			dists[x][y] = dists[nx][ny] + 1;
+			queue[tail++] = x*height + y;
+		}
+		if (0 == tail)
+			return; // the opening is not on any shortest path
+		// a single seed: the breadth-first order assigns final values right away
+		int head = 0;
+		while (head < tail) {
+			final int pos = queue[head++];
+			final int px = pos / height;
+			final int py = pos - px*height;
+			final int value = cells.getValueOfCell(px, py);
+			final int next = dists[px][py] + 1;
+			for (int d = 0; d < 4; d++) {
+				if ((value & DIR_BITS[d]) != 0)
+					continue;
+				final int qx = px + DIR_X[d];
+				final int qy = py + DIR_Y[d];
+				if (0 <= qx && qx < width && 0 <= qy && qy < height && dists[qx][qy] > next) {
+					dists[qx][qy] = next;
+					queue[tail++] = qx*height + qy;
+				}
+			}
+		}
+		startPosition = null; // computed on demand for the new values
+		labelsValid = false;
+	}
+	/**
+	 * Updates distance values after the given wallboard has been added
+	 * to the floorplan. A new wallboard can only lengthen paths.
+	 * The method first identifies the positions whose shortest paths
+	 * all went through the wallboard. Those positions are processed
+	 * in breadth-first order such that a position is affected if it has no 
+	 * neighbor one step closer to the sources that is not affected.
+	 * Then affected positions receive new values from their unaffected
+	 * neighbors, starting with the smallest candidate values.
+	 * Positions with distance value 1 are considered the sources of
+	 * the distance values and keep their value. Positions that 
+	 * are cut off from all sources receive the INFINITY value.
+	 * The effort is proportional to the number of positions that change,
+	 * except for the first call that allocates a marker array.
+	 * Precondition: the distance values are valid for the floorplan before
+	 * the wallboard has been added, the wallboard is an internal wallboard.
+	 * @param cells with information on wallboards for a maze after the addition, read only
+	 * @param wallboard the wallboard that has been added
+	 */
+	public void repairAfterWallboardAdded(Floorplan cells, Wallboard wallboard) {
+		// counts even if no value changes, the wallboard may block a shortest path
+		modifications++;
+		final int x = wallboard.getX();
+		final int y = wallboard.getY();
+		final int nx = wallboard.getNeighborX();
+		final int ny = wallboard.getNeighborY();
+		if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+			return; // wallboard on the outside border, no neighbor to disconnect
+		expand();
+		// identify the position that may have lost the support of its parent
+		int root;
+		if (dists[x][y] != INFINITY && dists[nx][ny] == dists[x][y] + 1)
+			root = nx*height + ny;
+		else if (dists[nx][ny] != INFINITY && dists[x][y] == dists[nx][ny] + 1)
+			root = x*height + y;
+		else
+			return; // the wallboard is not on any shortest path
+		final int mark = nextMark();
+		if (hasSupport(cells, root, mark))
+			return; // there is an alternative shortest path
+		// Step 1: collect affected positions in breadth-first order, when a
+		// position is taken from the queue, all affected positions on its 
+		// level are already marked, so the support check for the next level is exact
+		final int[] queue = getQueue();
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = root;
+		marks[root] = mark;
+		while (head < tail) {
+			final int pos = queue[head++];
+			final int px = pos / height;
+			final int py = pos - px*height;
+			final int value = cells.getValueOfCell(px, py);
+			final int child = dists[px][py] + 1;
+			for (int d = 0; d < 4; d++) {
+				if ((value & DIR_BITS[d]) != 0)
+					continue;
+				final int qx = px + DIR_X[d];
+				final int qy = py + DIR_Y[d];
+				if (qx < 0 || qx >= width || qy < 0 || qy >= height)
+					continue;
+				final int q = qx*height + qy;
+				if (dists[qx][qy] == child && marks[q] != mark && !hasSupport(cells, q, mark)) {
+					marks[q] = mark;
+					queue[tail++] = q;
+				}
+			}
+		}
+		// Step 2: reset affected positions and obtain candidate values 
+		// from unaffected neighbors, seeds encode (value,position) in a long
+		final int affected = tail;
+		for (int i = 0; i < affected; i++) {
+			final int pos = queue[i];
+			final int px = pos / height;
+			dists[px][pos - px*height] = INFINITY;
+		}
+		final long[] seeds = new long[affected];
+		int numberOfSeeds = 0;
+		for (int i = 0; i < affected; i++) {
+			final int pos = queue[i];
+			final int candidate = getCandidateValue(cells, pos, mark);
+			if (candidate != INFINITY)
+				seeds[numberOfSeeds++] = ((long)candidate << 32) | pos;
+		}
+		Arrays.sort(seeds, 0, numberOfSeeds);
+		// Step 3: breadth-first search restricted to affected positions
+		// that merges the sorted seeds with the queue in increasing order of values
+		head = 0;
+		tail = 0;
+		int s = 0;
+		while (s < numberOfSeeds || head < tail) {
+			int pos;
+			if (s < numberOfSeeds && (head == tail || 
+					(int)(seeds[s] >>> 32) <= dists[queue[head] / height][queue[head] % height])) {
+				final int candidate = (int)(seeds[s] >>> 32);
+				pos = (int)seeds[s++];
+				final int px = pos / height;
+				if (dists[px][pos - px*height] <= candidate)
+					continue; // reached earlier with a smaller value
+				dists[px][pos - px*height] = candidate;
+			}
+			else {
+				pos = queue[head++];
+			}
+			final int px = pos / height;
+			final int py = pos - px*height;
+			final int value = cells.getValueOfCell(px, py);
+			final int next = dists[px][py] + 1;
+			for (int d = 0; d < 4; d++) {
+				if ((value & DIR_BITS[d]) != 0)
+					continue;
+				final int qx = px + DIR_X[d];
+				final int qy = py + DIR_Y[d];
+				if (0 <= qx && qx < width && 0 <= qy && qy < height 
+						&& marks[qx*height + qy] == mark && dists[qx][qy] > next) {
+					dists[qx][qy] = next;
+					queue[tail++] = qx*height + qy;
+				}
+			}
+		}
+		startPosition = null; // computed on demand for the new values
+		labelsValid = false;
+	}
 	//////////////////////////////////////////////////////////////////////////
 	//////////////// private, internal methods ///////////////////////////////
 	//////////////////////////////////////////////////////////////////////////
@@ -268,10 +697,11 @@ public class Distance {
 	 * @return the new maximum distance after the comparison
 	 */
 	private int keepMaxDistance(int x, int y, int d, int[] result) {
-		if (dists[x][y] > d) {
+		final int value = getDistanceValue(x, y);
+		if (value > d) {
 			result[0] = x;
 			result[1] = y;
-			d = dists[x][y];
+			d = value;
 		}
 		return d;
 	}
@@ -286,10 +716,11 @@ public class Distance {
 		int[] result = new int[2] ;
 		for (int x = 0; x != width; x++)
 			for (int y = 0; y != height; y++) {
-				if (dists[x][y] < d) {
+				final int value = getDistanceValue(x, y);
+				if (value < d) {
 					result[0] = x;
 					result[1] = y;
-					d = dists[x][y];
+					d = value;
 				}
 			}
 		return result ;
@@ -304,159 +735,182 @@ public class Distance {
 
 	/**
 	 * Computes distances to the given position (ax,ay) for all cells in array dists.
+	 * Cells that can not be reached keep the INFINITY value.
 	 * @param cells with information on wallboards for a maze, can not be null
 	 * @param ax, position, x coordinate
 	 * @param ay, position, y coordinate
+	 * @param traversal selects a sequential or a parallel computation
 	 */
-	private void computeDists(Floorplan cells, int ax, int ay) {
-		//int x, y;
+	private void computeDists(Floorplan cells, int ax, int ay, Traversal traversal) {
 		// initialize the distance array with a value for infinity 
 		setAllDistanceValues(INFINITY) ;
-		// set the final distance at the exit position
-		dists[ax][ay] = 1;
-		// distribute values from this position to get started
-		pushDistanceValuesDFS2(cells, ax, ay);
-		int toDoCounter = countInfinity();
-		int progress; // used to recognize fixpoint, no progress, then stop
-		// go over this array as long as we can find something to do
-		// MEMO: there are likely to be much smarter ways to distribute distances in a breadth first manner...
-		// why not push identified cells with infinite distance on a "work to do" heap
-		// TODO: limit iterations to upperbound which is #cells == width * height
-		// in each iteration at least one cell should benefit from neighbor
-		// in each iteration at least one cell should receive its final value
-		// TODO: do a final checkup for enclosed areas left over with Max Int
-		do {
-			// check all entries in the distance array
-			for (int x = 0; x != width; x++) {
-				for (int y = 0; y != height; y++) 
-				{
-					if (dists[x][y] == INFINITY) {
-						continue;
-					}
-					// if the distance is not infinite, 
-					// let's see if the cell has a neighbor that we can update and 
-					// perform a depth first search on.
-					pushDistanceValuesDFS2(cells, x, y);
-				}
-			}
-			progress = toDoCounter - countInfinity();
-			toDoCounter -= progress; // update to current value
-		} while (0 < progress);
-		assert (0 == countInfinity()) : 
-			"All positions should have a finite distance to the exit";
-		// the computation is not good enough to have truly minimum values
-		saturateDistances(cells);
-	}
-	/**
-	 * Follows a path as far as possible to push small distance values
-	 * into the maze
-	 * @param cells needed for checking wallboards, read only
-	 * @param sx starting position
-	 * @param sy starting position
-	 */
-	private void pushDistanceValuesDFS2(Floorplan cells, int sx, int sy) {
-		while (true) {
-			CardinalDirection nextn = updateNeighborDistancesAndDirection(cells, sx, sy);
-			if (nextn == null)
-				break; // exit the loop if we cannot find another cell to proceed with
-			// update coordinates for next cell
-			int[] dir = nextn.getDirection();
-			sx += dir[0];
-			sy += dir[1];
-			// follow the nextn node on a depth-first-search path
+		final int reached;
+		if (Traversal.Parallel == traversal) {
+			reached = new ParallelBreadthFirstSearch(cells, dists, getQueue()).search(ax, ay);
 		}
+		else {
+			// set the final distance at the exit position
+			dists[ax][ay] = 1;
+			final int[] queue = getQueue();
+			queue[0] = ax*height + ay;
+			reached = pushDistanceValuesBFS(cells, 1, null);
+		}
+		assert (reached == width*height) : 
+			"All positions should have a finite distance to the exit";
 	}
-
-	
 	/**
-	 * Sets all values in dists to given value
-	 * @param value
+	 * Distributes distance values with a breadth-first search
+	 * that starts from the positions that are on the queue.
+	 * As every step from one cell to an adjacent cell has the same cost,
+	 * cells leave the queue in the order of their distance and each cell
+	 * receives its final value at the moment it is put on the queue.
+	 * So each reachable cell is visited exactly once and there is no need
+	 * to scan the whole matrix for cells that are still to be done.
+	 * Precondition: the first sources entries of the queue hold positions
+	 * encoded as x*height+y, these positions carry a distance value 
+	 * of 1 and all other positions carry the INFINITY value. 
+	 * @param cells with information on wallboards for a maze, can not be null, read only
+	 * @param sources the number of positions on the queue
+	 * @param nearest matrix that receives the label of the closest source,
+	 * labels of sources must be set, can be null if labels are not needed
+	 * @return the number of positions that received a finite distance value
 	 */
-	private void setAllDistanceValues(int value) {
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				dists[x][y] = value ;
+	private int pushDistanceValuesBFS(Floorplan cells, int sources, int[][] nearest) {
+		final int[] queue = getQueue();
+		int head = 0;
+		int tail = sources;
+		while (head < tail) {
+			final int pos = queue[head++];
+			final int x = pos / height;
+			final int y = pos - x*height;
+			final int value = cells.getValueOfCell(x, y);
+			final int next = dists[x][y] + 1; // distance of a neighbor
+			// check all four directions, a neighbor is reachable if there is 
+			// no wallboard in between and if it is within bounds,
+			// it needs an update if it has not been reached before
+			if ((value & Floorplan.CW_TOP) == 0 && 0 < y && dists[x][y-1] == INFINITY) {
+				dists[x][y-1] = next;
+				queue[tail++] = pos - 1;
+				if (null != nearest)
+					nearest[x][y-1] = nearest[x][y];
+			}
+			if ((value & Floorplan.CW_BOT) == 0 && y < height-1 && dists[x][y+1] == INFINITY) {
+				dists[x][y+1] = next;
+				queue[tail++] = pos + 1;
+				if (null != nearest)
+					nearest[x][y+1] = nearest[x][y];
+			}
+			if ((value & Floorplan.CW_LEFT) == 0 && 0 < x && dists[x-1][y] == INFINITY) {
+				dists[x-1][y] = next;
+				queue[tail++] = pos - height;
+				if (null != nearest)
+					nearest[x-1][y] = nearest[x][y];
+			}
+			if ((value & Floorplan.CW_RIGHT) == 0 && x < width-1 && dists[x+1][y] == INFINITY) {
+				dists[x+1][y] = next;
+				queue[tail++] = pos + height;
+				if (null != nearest)
+					nearest[x+1][y] = nearest[x][y];
 			}
 		}
+		return tail;
 	}
 	/**
-	 * Counts how often infinity values is present in matrix
-	 * @return the number of cells with an infinite distance to the exit
+	 * Sets the label of all positions with an infinite distance to -1.
+	 * @param nearest matrix of labels
 	 */
-	private int countInfinity() {
-		int result = 0;
+	private void markUnreachable(int[][] nearest) {
 		for (int x = 0; x < width; x++) {
 			for (int y = 0; y < height; y++) {
 				if (dists[x][y] == INFINITY)
-					result++;
+					nearest[x][y] = -1;
 			}
 		}
-		return result;
 	}
 	/**
-	 * Updates distance values for adjacent cells that are reachable
-	 * if value can be reduced to current distance plus 1. 
-	 * @param cells with information on wallboards for a maze, can not be null, read only
-	 * @param currentX x coordinate of current position
-	 * @param currentY y coordinate of current position
-	 * @return direction for a neighbor that has been updated or null if there is none
-	 */
-	private CardinalDirection updateNeighborDistancesAndDirection(Floorplan cells, int currentX, int currentY) {
-		CardinalDirection result = null; // returns null by default
-		int nextDistance = dists[currentX][currentY] + 1; // distance of a neighbor
-		int[] dir;
-		int nextX;
-		int nextY;
-		// check all four directions, update distance as needed
-		for (CardinalDirection cd: CardinalDirection.values()) {
-			// check for reachable neighbors
-			if (cells.hasNoWall(currentX, currentY, cd)) {
-				// check if neighbor is on board
-				dir = cd.getDirection();
-				nextX = currentX+dir[0];
-				nextY = currentY+dir[1];
-				// check if cell at (nextX,nextY) is within bounds
-				if ((0 <= nextX && nextX < width) && (0 <= nextY && nextY < height)) {
-					// check if neigbor's distance needs update
-					if (dists[nextX][nextY] > nextDistance) {
-						// update the neighbor's distance value
-						// mark that cell as the next one
-						dists[nextX][nextY] = nextDistance;
-						result = cd;
-					}
-				}
-			}
+	 * Tells if the given position has a reachable neighbor that is one step 
+	 * closer to the sources and that is not marked as affected.
+	 * @param cells with information on wallboards for a maze, read only
+	 * @param pos position encoded as x*height+y
+	 * @param mark the current value for affected positions in marks
+	 * @return true if such a neighbor exists, false otherwise
+	 */
+	private boolean hasSupport(Floorplan cells, int pos, int mark) {
+		final int px = pos / height;
+		final int py = pos - px*height;
+		final int value = cells.getValueOfCell(px, py);
+		final int parent = dists[px][py] - 1;
+		for (int d = 0; d < 4; d++) {
+			if ((value & DIR_BITS[d]) != 0)
+				continue;
+			final int qx = px + DIR_X[d];
+			final int qy = py + DIR_Y[d];
+			if (0 <= qx && qx < width && 0 <= qy && qy < height 
+					&& dists[qx][qy] == parent && marks[qx*height + qy] != mark)
+				return true;
+		}
+		return false;
+	}
+	/**
+	 * Gives the smallest value that the given position can obtain
+	 * from its reachable neighbors that are not marked as affected.
+	 * @param cells with information on wallboards for a maze, read only
+	 * @param pos position encoded as x*height+y
+	 * @param mark the current value for affected positions in marks
+	 * @return the smallest neighbor value plus 1, INFINITY if there is none
+	 */
+	private int getCandidateValue(Floorplan cells, int pos, int mark) {
+		final int px = pos / height;
+		final int py = pos - px*height;
+		final int value = cells.getValueOfCell(px, py);
+		int result = INFINITY;
+		for (int d = 0; d < 4; d++) {
+			if ((value & DIR_BITS[d]) != 0)
+				continue;
+			final int qx = px + DIR_X[d];
+			final int qy = py + DIR_Y[d];
+			if (0 <= qx && qx < width && 0 <= qy && qy < height 
+					&& marks[qx*height + qy] != mark && dists[qx][qy] != INFINITY
+					&& dists[qx][qy] + 1 < result)
+				result = dists[qx][qy] + 1;
 		}
 		return result;
 	}
+	/**
+	 * Provides a fresh value to mark positions in the marks array.
+	 * The array is allocated on demand and reused, a new value
+	 * avoids clearing the array for every repair.
+	 * @return value that no position carries in the marks array
+	 */
+	private int nextMark() {
+		if (null == marks || marks.length != width*height || Integer.MAX_VALUE == currentMark) {
+			marks = new int[width*height];
+			currentMark = 0;
+		}
+		return ++currentMark;
+	}
+	/**
+	 * Provides the work queue for the breadth-first search.
+	 * The queue holds each position at most once, so an array
+	 * of size width*height suffices. It is allocated on demand
+	 * and reused for subsequent computations.
+	 * @return array of length width*height
+	 */
+	private int[] getQueue() {
+		if (null == queue || queue.length != width*height)
+			queue = new int[width*height];
+		return queue;
+	}
+
 	
 	/**
-	 * Fix-point iteration on distance matrix.
-	 * @param  cells with information on wallboards for a maze, can not be null, read only
-	 */
-	private void saturateDistances(Floorplan cells) {
-		boolean progress = false; 
-		//int count = 0;
-		int[] dir = null;
-		CardinalDirection nextn;
-		do {
-			progress = false; // reset termination criterion
-			// go through all positions
-			// check if we can update a neighbor to 
-			// a shorter distance, if so we made progress
-			for (int x = 0; x < width; x++) {
-				for (int y = 0; y < height; y++) {
-					nextn = updateNeighborDistancesAndDirection(cells, x, y);
-					if (null != nextn) {
-						progress = true; // something changed
-						// follow neighbor on a depth-first-search path
-						dir = nextn.getDirection();
-						pushDistanceValuesDFS2(cells, x+dir[0], y+dir[1]);		
-					}
-				}
-			}
-			//count++;
-		} while (progress);
-		//System.out.println("Distance.saturate: #iterations needed " + count);
+	 * Sets all values in dists to given value
+	 * @param value
+	 */
+	private void setAllDistanceValues(int value) {
+		// Arrays.fill is an intrinsic that the JIT compiles into vector stores
+		for (int x = 0; x < width; x++) {
+			Arrays.fill(dists[x], 0, height, value);
+		}
 	}
-}
\ No newline at end of file
+}
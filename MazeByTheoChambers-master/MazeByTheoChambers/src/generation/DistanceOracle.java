@@ -0,0 +1,312 @@
+package generation;
+
+/**
+ * This class answers queries for the distance between two arbitrary
+ * positions of a maze, i.e., the number of steps on a shortest path
+ * from one position to the other.
+ *
+ * The oracle follows the ALT approach (A*, landmarks, triangle inequality).
+ * At construction time, it selects k landmark positions and stores
+ * the distance of every position to each landmark.
+ * For any landmark L and positions a and b, the triangle inequality
+ * gives {@code |d(L,a) - d(L,b)| <= d(a,b)}, so the maximum over all landmarks
+ * is an admissible and consistent estimate for an A* search from a to b.
+ * Landmarks are picked one after the other as a position that is farthest
+ * away from all landmarks picked so far, which spreads them along
+ * the border of the maze where the estimates are most accurate.
+ *
+ * The number of landmarks results from a memory budget: each landmark
+ * takes one int value per position. The distance table is stored
+ * with all landmark values of a position next to each other such that
+ * an estimate reads a single contiguous block of memory.
+ *
+ * The oracle works on the floorplan at construction time. It needs to be
+ * recreated if wallboards change. Queries can be issued concurrently from
+ * several threads, each thread works with its own search buffers.
+ */
+public class DistanceOracle {
+	/**
+	 * The default memory budget in bytes for the landmark table.
+	 * For the largest skill level it suffices for 7 landmarks.
+	 */
+	public static final int DEFAULT_MEMORY_BUDGET = 1 << 21;
+	/**
+	 * Upper limit on the number of landmarks, more landmarks improve
+	 * estimates only marginally but make each estimate more expensive.
+	 */
+	public static final int MAX_LANDMARKS = 16;
+
+	private final Floorplan floorplan ; // maze layout, read only
+	private final int width ; // width of maze
+	private final int height ; // height of maze
+	private final int numberOfLandmarks ; // k, at least 1
+	private final int[] landmarks ; // landmark positions encoded as x*height+y
+	/**
+	 * Distance values of all positions to all landmarks,
+	 * the value of position p and landmark l is at index p*k+l.
+	 * Values are number of steps, Distance.INFINITY for unreachable positions.
+	 */
+	private final int[] table ;
+	/**
+	 * Search buffers of the current thread, shared by all oracles and
+	 * replaced by larger ones if a query comes for a larger maze.
+	 * Buffers do not refer to an oracle after a query, so an oracle
+	 * that is no longer used can be collected.
+	 */
+	private static final ThreadLocal<Search> searches = new ThreadLocal<>();
+
+	/**
+	 * Constructor with the default memory budget.
+	 * @param floorplan with information on wallboards for a maze, can not be null, read only
+	 */
+	public DistanceOracle(Floorplan floorplan) {
+		this(floorplan, DEFAULT_MEMORY_BUDGET);
+	}
+	/**
+	 * Constructor, computes the landmark table.
+	 * @param floorplan with information on wallboards for a maze, can not be null, read only
+	 * @param memoryBudget is the number of bytes that the landmark table may use,
+	 * at least one landmark is used, regardless of the budget
+	 */
+	public DistanceOracle(Floorplan floorplan, int memoryBudget) {
+		this.floorplan = floorplan;
+		this.width = floorplan.getWidth();
+		this.height = floorplan.getHeight();
+		final int n = width*height;
+		// each landmark needs an int per position
+		final long perLandmark = 4L*n;
+		numberOfLandmarks = (int)Math.max(1, Math.min(Math.min(MAX_LANDMARKS, n), memoryBudget / perLandmark));
+		landmarks = new int[numberOfLandmarks];
+		table = new int[n*numberOfLandmarks];
+		selectLandmarks();
+	}
+	/**
+	 * @return the number of landmarks in use
+	 */
+	public int getNumberOfLandmarks() {
+		return numberOfLandmarks;
+	}
+	/**
+	 * Gives the position of a landmark.
+	 * @param index of landmark, {@code 0 <= index < getNumberOfLandmarks()}
+	 * @return (x,y) coordinates of the landmark
+	 */
+	public int[] getLandmark(int index) {
+		final int pos = landmarks[index];
+		return new int[] {pos / height, pos % height};
+	}
+	/**
+	 * Gives a lower bound for the distance between two positions
+	 * that is obtained from the landmarks without any search.
+	 * @param ax is on the horizontal axis, {@code 0 <= ax < width}
+	 * @param ay is on the vertical axis, {@code 0 <= ay < height}
+	 * @param bx is on the horizontal axis, {@code 0 <= bx < width}
+	 * @param by is on the vertical axis, {@code 0 <= by < height}
+	 * @return a value that is less or equal to the number of steps from (ax,ay) to (bx,by)
+	 */
+	public int getLowerBound(int ax, int ay, int bx, int by) {
+		return estimate(ax*height + ay, bx*height + by);
+	}
+	/**
+	 * Gives the number of steps on a shortest path between two positions.
+	 * Note that this is one less than the distance value of the
+	 * {@link Distance} class where the exit itself has value 1.
+	 * @param ax is on the horizontal axis, {@code 0 <= ax < width}
+	 * @param ay is on the vertical axis, {@code 0 <= ay < height}
+	 * @param bx is on the horizontal axis, {@code 0 <= bx < width}
+	 * @param by is on the vertical axis, {@code 0 <= by < height}
+	 * @return the number of steps from (ax,ay) to (bx,by), 0 if both are the same,
+	 * Distance.INFINITY if there is no path
+	 */
+	public int getDistance(int ax, int ay, int bx, int by) {
+		final int source = ax*height + ay;
+		final int target = bx*height + by;
+		if (source == target)
+			return 0;
+		// positions that are in different components of the maze
+		// are unreachable for at least one landmark but not for the other
+		final int sourceBase = source*numberOfLandmarks;
+		final int targetBase = target*numberOfLandmarks;
+		for (int l = 0; l < numberOfLandmarks; l++) {
+			if ((Distance.INFINITY == table[sourceBase+l]) != (Distance.INFINITY == table[targetBase+l]))
+				return Distance.INFINITY;
+		}
+		final int n = width*height;
+		Search search = searches.get();
+		if (null == search || search.capacity < n) {
+			search = new Search(n);
+			searches.set(search);
+		}
+		return search.search(floorplan, table, numberOfLandmarks, source, target);
+	}
+	/**
+	 * Computes the estimate for the distance between two positions.
+	 * @param pos position encoded as x*height+y
+	 * @param target position encoded as x*height+y
+	 * @return the maximum difference of landmark distances
+	 */
+	private int estimate(int pos, int target) {
+		return estimate(table, numberOfLandmarks, pos, target);
+	}
+	/**
+	 * Computes the estimate for the distance between two positions from the given table.
+	 * @param table distance values of all positions to all landmarks, see {@link #table}
+	 * @param numberOfLandmarks k, number of values per position in the table
+	 * @param pos position encoded as x*height+y
+	 * @param target position encoded as x*height+y
+	 * @return the maximum difference of landmark distances
+	 */
+	private static int estimate(int[] table, int numberOfLandmarks, int pos, int target) {
+		final int base = pos*numberOfLandmarks;
+		final int targetBase = target*numberOfLandmarks;
+		int result = 0;
+		for (int l = 0; l < numberOfLandmarks; l++) {
+			final int a = table[base+l];
+			final int b = table[targetBase+l];
+			if (Distance.INFINITY == a || Distance.INFINITY == b)
+				continue;
+			final int diff = (a > b) ? a - b : b - a;
+			if (diff > result)
+				result = diff;
+		}
+		return result;
+	}
+	/**
+	 * Picks landmarks as farthest positions and fills the table.
+	 * The first landmark is the position farthest away from the center,
+	 * each further landmark is farthest away from all landmarks so far.
+	 * Positions in a component that no landmark reaches count as farthest.
+	 */
+	private void selectLandmarks() {
+		final int n = width*height;
+		final Distance dists = new Distance(width, height);
+		// smallest distance to any landmark for each position
+		final int[] nearest = new int[n];
+		dists.computeDistanceField(floorplan, new int[] {width/2}, new int[] {height/2}, false);
+		int next = getFarthestPosition(dists, null);
+		java.util.Arrays.fill(nearest, Distance.INFINITY);
+		for (int l = 0; l < numberOfLandmarks; l++) {
+			landmarks[l] = next;
+			dists.computeDistanceField(floorplan, new int[] {next / height}, new int[] {next % height}, false);
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					final int pos = x*height + y;
+					final int d = dists.getDistanceValue(x, y);
+					// distance values start with 1 at the landmark
+					final int steps = (Distance.INFINITY == d) ? Distance.INFINITY : d - 1;
+					table[pos*numberOfLandmarks + l] = steps;
+					if (steps < nearest[pos])
+						nearest[pos] = steps;
+				}
+			}
+			next = getFarthestPosition(null, nearest);
+		}
+	}
+	/**
+	 * Finds the position with the largest value, an infinite value is largest.
+	 * @param dists distance values to read, or null
+	 * @param values distance values encoded as x*height+y to read if dists is null
+	 * @return position encoded as x*height+y
+	 */
+	private int getFarthestPosition(Distance dists, int[] values) {
+		int result = 0;
+		int max = -1;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final int d = (null != dists) ? dists.getDistanceValue(x, y) : values[x*height + y];
+				if (d > max) {
+					max = d;
+					result = x*height + y;
+				}
+			}
+		}
+		return result;
+	}
+	/**
+	 * Buffers for an A* search that are reused across queries of the same thread.
+	 * Arrays are stamped with the number of the query to avoid clearing them.
+	 */
+	private static final class Search {
+		private final int capacity ; // number of positions the buffers can hold
+		private final int[] cost ; // number of steps from the source
+		private final int[] reached ; // query number when cost was set
+		private final int[] closed ; // query number when position was finished
+		private final IntMinHeap open = new IntMinHeap(64) ; // positions with their estimated total cost
+		private int query ; // number of the current query
+		// settings for the current query, null when no query is running
+		private int[] table ;
+		private int numberOfLandmarks ;
+
+		Search(int capacity) {
+			this.capacity = capacity;
+			cost = new int[capacity];
+			reached = new int[capacity];
+			closed = new int[capacity];
+		}
+		/**
+		 * Runs an A* search from source to target.
+		 * @param floorplan with information on wallboards for a maze, read only
+		 * @param table distance values of all positions to all landmarks of the oracle
+		 * @param numberOfLandmarks number of values per position in the table
+		 * @param source position encoded as x*height+y
+		 * @param target position encoded as x*height+y
+		 * @return the number of steps, Distance.INFINITY if there is no path
+		 */
+		int search(Floorplan floorplan, int[] table, int numberOfLandmarks, int source, int target) {
+			this.table = table;
+			this.numberOfLandmarks = numberOfLandmarks;
+			try {
+				return search(floorplan, source, target);
+			} finally {
+				this.table = null;
+			}
+		}
+		private int search(Floorplan floorplan, int source, int target) {
+			final int width = floorplan.getWidth();
+			final int height = floorplan.getHeight();
+			if (Integer.MAX_VALUE == query) {
+				// start over with fresh stamps
+				java.util.Arrays.fill(reached, 0);
+				java.util.Arrays.fill(closed, 0);
+				query = 0;
+			}
+			query++;
+			open.clear();
+			cost[source] = 0;
+			reached[source] = query;
+			open.add(estimate(table, numberOfLandmarks, source, target), source);
+			while (!open.isEmpty()) {
+				final int pos = open.poll();
+				if (closed[pos] == query)
+					continue; // outdated entry, position was finished with a smaller cost
+				if (pos == target)
+					return cost[pos];
+				closed[pos] = query;
+				final int x = pos / height;
+				final int y = pos - x*height;
+				final int value = floorplan.getValueOfCell(x, y);
+				final int next = cost[pos] + 1;
+				if ((value & Floorplan.CW_TOP) == 0 && 0 < y)
+					relax(pos - 1, next, target);
+				if ((value & Floorplan.CW_BOT) == 0 && y < height-1)
+					relax(pos + 1, next, target);
+				if ((value & Floorplan.CW_LEFT) == 0 && 0 < x)
+					relax(pos - height, next, target);
+				if ((value & Floorplan.CW_RIGHT) == 0 && x < width-1)
+					relax(pos + height, next, target);
+			}
+			return Distance.INFINITY;
+		}
+		/**
+		 * Updates the cost for a neighbor if the given cost is smaller.
+		 */
+		private void relax(int pos, int newCost, int target) {
+			// the estimate is consistent, finished positions can not improve
+			if (closed[pos] == query || (reached[pos] == query && cost[pos] <= newCost))
+				return;
+			cost[pos] = newCost;
+			reached[pos] = query;
+			open.add(newCost + estimate(table, numberOfLandmarks, pos, target), pos);
+		}
+	}
+}
@@ -2,6 +2,7 @@ package generation;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -11,7 +12,7 @@ import java.util.NoSuchElementException;
  * with a 2 dimensional grid and it encapsulates access to each 
  * cell in that grid.
  *  
- * The internal two-dimensional array matches with a grid of cells as follows:
+ * The internal array matches with a grid of cells as follows:
  * floorplan[0,y] form the left border, hence there is a wallboard on  left.
  * floorplan[width-1,y] form the right border, hence there is a wallboard on right.
  * floorplan[x,0] form the top border, hence there is a wallboard on top.
@@ -88,17 +89,31 @@ public class Floorplan {
 	//west  = (-1,0)
 	//north = (0,-1)
 	
-	private int width;
-	private int height ;
-	private int[][] cells; // width x height array of cells, cells[width][height]
+	private final int width;
+	private final int height ;
+	private final int[] cells; // width * height array of cells, one row after the other
 	// each cell contains an integer which encodes presence/absence of wallboards
-	// cells[i][j] can be read as (i,j) coordinates much like (x,y) coordinates
-	// where the first dimension x grows towards the right and 
-	// the second dimension y grows towards the bottom
+	// cell (x,y) is at index y*width+x, see getIndex(x,y), 
+	// where x grows towards the right and y grows towards the bottom
 	// as if the (0,0) position is in the top-left corner.
-	// cells[i][j] is not intuitive in terms of rows and column indices in matrix notation 
-	// as position (i,j) would be column i and row j which is opposite to the normal  
-	// use of rows and columns indices for matrices.
+	// a single array avoids the extra dereference of a row object on each access
+	// and neighbors in a row are next to each other in memory.
+	// all access to the array goes through readCell, orCell and andNotCell
+	// (and their range versions) such that subclasses can keep cells in a different kind of storage.
+	
+	// 64 bit fingerprint of the content, the XOR of a hash value for each cell,
+	// see getContribution. Single cell updates change it in constant time.
+	// It is invalid after changes to a range of cells or if the storage holds values 
+	// the fingerprint does not know about, it then gets recomputed on demand.
+	private long fingerprint ;
+	private boolean fingerprintValid ;
+	
+	// records changes to cells if not null, see startJournal
+	private FloorplanJournal journal ;
+	// bitmap of cells in rooms, kept up to date with each change of a CW_IN_ROOM bit.
+	// It starts out empty for a new int array, other storage may come with content,
+	// then it is built on first use by areaOverlapsWithRoom or countCellsInRoom
+	private RoomIndex roomIndex ;
 	
 	/**
 	 * Constructor
@@ -106,9 +121,23 @@ public class Floorplan {
 	 * @param h height, {@code 0 < h}
 	 */
 	public Floorplan(int w, int h) {
+		this(w, h, true);
+	}
+	/**
+	 * Constructor for subclasses that keep all cells in a storage of their own.
+	 * Such a subclass must override readCell, orCell and andNotCell.
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 * @param heapStorage is true to allocate the int array for cells, false otherwise
+	 */
+	protected Floorplan(int w, int h, boolean heapStorage) {
 		width = w ;
 		height = h ;
-		cells = new int[w][h];
+		cells = heapStorage ? new int[w*h] : null;
+		// a new int array holds 0 values only, other storage may come with content
+		fingerprint = 0 ;
+		fingerprintValid = heapStorage ;
+		roomIndex = heapStorage ? new RoomIndex(w, h) : null ;
 	}
 
 	/**
@@ -119,19 +148,12 @@ public class Floorplan {
 	 */
 	public Floorplan(int[][] input){
 		// Alternative, 2d array is a 1d array with arrays as elements
-		width = input.length ;
-		height = input[0].length ;
-		cells = new int[width][];
-		for(int i = 0; i < width; i++)
-		    cells[i] = input[i].clone(); // clone row
-		/* Basic version
 		this(input.length, input[0].length);
 		for (int i = 0; i < width; i++) {
 			for (int j = 0; j < height; j++) {
-				cells[i][j] = input[i][j];
+				setBitToOne(i, j, input[i][j]);
 			}
 		}
-		*/
 	}
 	
 	/**
@@ -141,22 +163,15 @@ public class Floorplan {
 	 * It is fully enclosed, there is no exit.
 	 */
 	public void initialize() {
-		int x, y;
 		// Step 1: erect wallboards everywhere, reset visited flag
-		for (x = 0; x < width; x++) {
-			for (y = 0; y < height; y++) {
-				setBitToOne(x, y, (CW_VISITED | CW_ALL));
-			}
-		} 
+		setBitsToOne(0, width*height, (CW_VISITED | CW_ALL));
 		// Step 2: mark wallboards on exterior walls as a border
 		// Assumption: (0,0) at top-left corner
-		// mark exterior wallboards to top and bottom
-		for (x = 0; x < width; x++) {
-			setBitToOne(x, 0, getBoundForBit(CW_TOP));
-			setBitToOne(x, height-1, getBoundForBit(CW_BOT));
-		} 
+		// mark exterior wallboards to top and bottom, each is a single row
+		setBitsToOne(getIndex(0, 0), getIndex(0, 0) + width, getBoundForBit(CW_TOP));
+		setBitsToOne(getIndex(0, height-1), getIndex(0, height-1) + width, getBoundForBit(CW_BOT));
 		// mark exterior wallboards to left and right 
-		for (y = 0; y < height; y++) {
+		for (int y = 0; y < height; y++) {
 			setBitToOne(0, y, getBoundForBit(CW_LEFT));
 			setBitToOne(width-1, y, getBoundForBit(CW_RIGHT));
 		}
@@ -173,29 +188,103 @@ public class Floorplan {
 			return true ;
 		if (null == other)
 			return false ;
-		if (getClass() != other.getClass())
+		if (!(other instanceof Floorplan))
 			return false ;
 		// general case
-		final Floorplan o = (Floorplan)other ; // type cast safe after checking class objects
+		final Floorplan o = (Floorplan)other ; // type cast safe after instanceof check
 		if ((width != o.width)||(height != o.height))
 			return false ;
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				if (cells[i][j] != o.cells[i][j])
-					return false ;
-			}
+		// different fingerprints mean different content
+		if (fingerprintValid && o.fingerprintValid && fingerprint != o.fingerprint)
+			return false ;
+		if (Floorplan.class == getClass() && Floorplan.class == o.getClass())
+			return Arrays.equals(cells, o.cells) ;
+		// subclasses may keep some or all bits elsewhere, 
+		// floorplans with different storage are equal if all cells match
+		for (int i = 0; i < width*height; i++) {
+			if (readCell(i) != o.readCell(i))
+				return false ;
 		}
 		return true ;
 	}
 	/**
-	 * Hashcode method is not implemented as it is not needed here.
-	 * Dummy method to recognize common pitfall from overriding equals() but 
-	 * not hashcode() method.
+	 * Hashcode method that is consistent with equals, it is derived from the fingerprint.
+	 * Note that the hash code changes with the content, so a floorplan
+	 * must not change while it is a key in a hash based collection.
 	 */
 	@Override
 	public int hashCode() {
-		  assert false : "hashCode not designed";
-		  return 42; // any arbitrary constant will do
+		final long f = fingerprint() ;
+		return (int)(f ^ (f >>> 32)) ;
+	}
+	/**
+	 * Gives a 64 bit fingerprint of the dimensions and the content of this floorplan.
+	 * Floorplans that are equal have the same fingerprint, regardless of how
+	 * they store their cells. Different floorplans have the same fingerprint
+	 * only with a very small probability, so fingerprints are suitable to
+	 * find duplicates among many floorplans.
+	 * 
+	 * The fingerprint follows the idea of Zobrist hashing:
+	 * it is the XOR of a hash value for each cell with its index and value,
+	 * where cells with value 0 do not contribute. A change to a cell
+	 * XORs out the old hash value and XORs in the new one, so the fingerprint
+	 * is kept up to date in constant time for each change and this method
+	 * usually returns right away. Only operations on many cells at once,
+	 * i.e., {@link #initialize()} and {@link #markAreaAsRoom(int, int, int, int, int, int)},
+	 * leave it to the next call of this method to compute the fingerprint from scratch. Hash values are computed with a mixing function
+	 * instead of a table of random numbers to avoid a table of size width*height.
+	 * @return fingerprint of this floorplan
+	 */
+	public long fingerprint() {
+		if (!fingerprintValid) {
+			fingerprint = computeContentFingerprint() ;
+			fingerprintValid = true ;
+		}
+		return fingerprint ^ mix(((long)width << 32) | height) ;
+	}
+	/**
+	 * Computes the fingerprint from scratch with a pass over all cells.
+	 * Meant for subclasses that need to compute it without 
+	 * updating the fingerprint that this class maintains.
+	 * @return the same value as {@link #fingerprint()}
+	 */
+	protected final long computeFingerprint() {
+		return computeContentFingerprint() ^ mix(((long)width << 32) | height) ;
+	}
+	/**
+	 * Tells if the fingerprint is up to date such that {@link #fingerprint()}
+	 * returns right away.
+	 * @return true if the fingerprint needs no computation, false otherwise
+	 */
+	protected final boolean isFingerprintValid() {
+		return fingerprintValid ;
+	}
+	/**
+	 * Gives the hash value of a cell for the fingerprint.
+	 * @param index of cell
+	 * @param value of cell
+	 * @return hash value, 0 for value 0
+	 */
+	private static long getContribution(int index, int value) {
+		return (0 == value) ? 0 : mix(((long)index << 32) | (value & 0xFFFFFFFFL)) ;
+	}
+	/**
+	 * SplitMix64 finalizer, spreads each input bit over all output bits.
+	 */
+	private static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L ;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L ;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL ;
+		return z ^ (z >>> 31) ;
+	}
+	/**
+	 * XORs the hash values of all cells.
+	 */
+	private long computeContentFingerprint() {
+		long f = 0 ;
+		for (int i = 0; i < width*height; i++)
+			f ^= getContribution(i, readCell(i)) ;
+		return f ;
 	}
 	/**
 	 * Get the value of a cell at the given position (x,y).
@@ -206,7 +295,30 @@ public class Floorplan {
 	 */
 	public int getValueOfCell( int x, int y )
 	{
-		return cells[x][y] ;
+		return readCell(getIndex(x, y)) ;
+	}
+	/**
+	 * Get the value of a cell at the given index.
+	 * Meant for loops that visit many cells such that the computation
+	 * of the index from (x,y) coordinates can be avoided, e.g.,
+	 * the index of the right neighbor is index+1, the one of the
+	 * neighbor below is index+width.
+	 * @param index of cell, see {@link #getIndex(int, int)}
+	 * precondition {@code 0 <= index < width*height}
+	 * @return value with internal encoding of wallboards and other attributes for the cell
+	 */
+	public int getValueOfCell(int index) {
+		return readCell(index) ;
+	}
+	/**
+	 * Gives the index of the cell at the given position (x,y).
+	 * Cells are numbered row by row starting at the top-left corner.
+	 * @param x coordinate of cell, {@code 0 <= x < width}
+	 * @param y coordinate of cell, {@code 0 <= y < height}
+	 * @return index y*width+x
+	 */
+	public int getIndex(int x, int y) {
+		return y*width + x ;
 	}
 	
 	/**
@@ -389,7 +501,7 @@ public class Floorplan {
 	 * @return true if area contains a cell that is already in a room or if it is too close to the border, false otherwise
 	 */
 	public boolean areaOverlapsWithRoom(int rx, int ry, int rxl, int ryl) {
-		// loop start and end are chosen such that there is at least one cell 
+		// start and end are chosen such that there is at least one cell 
 		// between area and any existing room or the outside border
 		int startX = rx-1 ;
 		int startY = ry-1 ;
@@ -399,15 +511,26 @@ public class Floorplan {
 		if (((startX < 0)||(startY < 0))||((stopX >= width)||(stopY >= height)))
 			return true ;
 		// check area
-		for (int x = startX; x <= stopX; x++)
-		{
-			for (int y = startY; y <= stopY; y++)
-			{
-				if (isInRoom(x, y))
-					return true ;
-			}
-		}
-		return false ;
+		return getRoomIndex().count(startX, startY, stopX, stopY, true) > 0 ;
+	}
+	/**
+	 * Counts the cells in the given area that belong to a room.
+	 * It works on an index that tests up to 64 cells of a row at once,
+	 * for a floorplan with storage of a subclass, the first call builds the index.
+	 * Precondition {@code 0 <= rx <= rxl < width, 0 <= ry <= ryl < height}
+	 * @param rx 1st corner, x coordinate
+	 * @param ry 1st corner, y coordinate
+	 * @param rxl 2nd corner, x coordinate
+	 * @param ryl 2nd corner, y coordinate
+	 * @return number of cells in the area that are in a room
+	 */
+	public int countCellsInRoom(int rx, int ry, int rxl, int ryl) {
+		return getRoomIndex().count(rx, ry, rxl, ryl, false) ;
+	}
+	private RoomIndex getRoomIndex() {
+		if (null == roomIndex)
+			roomIndex = new RoomIndex(this) ;
+		return roomIndex ;
 	}
 	/**
 	 * Marks a given area as a room on the maze and positions up to five doors randomly.
@@ -429,11 +552,11 @@ public class Floorplan {
 		// mark all cells in area as being inside the room
 		int x;
 		int y;
-		for (x = rx; x <= rxl; x++)
-			for (y = ry; y <= ryl; y++) { 
-				setAllToZero(x, y);
-				setInRoomToOne(x, y);
-			} 
+		// cells of a row are next to each other
+		for (y = ry; y <= ryl; y++) {
+			setBitsToZero(getIndex(rx, y), getIndex(rxl, y) + 1, CW_ALL);
+			setBitsToOne(getIndex(rx, y), getIndex(rxl, y) + 1, CW_IN_ROOM);
+		}
 		// Step 2: set border flag at the perimeter
 		// this distinguishes these wallboards as special 
 		// and the mazebuilder algorithm can leave them in place
@@ -746,6 +869,71 @@ public class Floorplan {
 	public Iterator<int[]> iterator(int x, int y, CardinalDirection cd) {
         return new SequenceIterator(x,y,cd);
     }
+	/**
+	 * Receives continuous sequences of wallboards, see {@link #forEachWallRun(WallRunConsumer)}.
+	 */
+	@FunctionalInterface
+	public interface WallRunConsumer {
+		/**
+		 * @param cd gives the side of the cells where the wallboards are
+		 * @param line is the y coordinate of the row for North and South,
+		 * the x coordinate of the column for East and West
+		 * @param start is the first cell of the sequence, a x coordinate for North and South,
+		 * a y coordinate for East and West
+		 * @param end is the first cell after the sequence, same as for the iterator
+		 */
+		void accept(CardinalDirection cd, int line, int start, int end);
+	}
+	/**
+	 * Delivers all continuous sequences of wallboards in a single pass
+	 * without allocating an iterator or an array for each sequence.
+	 * The sequences are the same as the ones of {@link #iterator(int, int, CardinalDirection)}
+	 * when it starts at the beginning of each row and column. They come row by row
+	 * from top to bottom, first North then South for each row,
+	 * and then column by column from left to right, first West then East for each column.
+	 * @param consumer receives the sequences
+	 */
+	public void forEachWallRun(WallRunConsumer consumer) {
+		for (int y = 0; y < height; y++) {
+			forEachWallRun(CardinalDirection.North, y, consumer);
+			forEachWallRun(CardinalDirection.South, y, consumer);
+		}
+		for (int x = 0; x < width; x++) {
+			forEachWallRun(CardinalDirection.West, x, consumer);
+			forEachWallRun(CardinalDirection.East, x, consumer);
+		}
+	}
+	/**
+	 * Delivers the continuous sequences of wallboards for a single row or column.
+	 * A sequence ends at the first cell without a wallboard on the given side
+	 * or at the first cell with a crossing wallboard on its left (top) side.
+	 * Subclasses with a different storage may find sequences faster.
+	 * @param cd gives the side of the cells where the wallboards are
+	 * @param line is the y coordinate of the row for North and South,
+	 * the x coordinate of the column for East and West
+	 * @param consumer receives the sequences
+	 */
+	protected void forEachWallRun(CardinalDirection cd, int line, WallRunConsumer consumer) {
+		final int bit = getCWConstantForDirection(cd) ;
+		final boolean horizontal = (CardinalDirection.North == cd || CardinalDirection.South == cd) ;
+		// walk along a row (column) with steps of 1 (width) through the cells
+		final int first = horizontal ? getIndex(0, line) : getIndex(line, 0) ;
+		final int step = horizontal ? 1 : width ;
+		final int limit = horizontal ? width : height ;
+		final int crossing = horizontal ? CW_LEFT : CW_TOP ;
+		int i = 0 ;
+		while (true) {
+			while (i < limit && 0 == (readCell(first + i*step) & bit))
+				i++ ;
+			if (i == limit)
+				return ;
+			final int start = i ;
+			do {
+				i++ ;
+			} while (i < limit && 0 != (readCell(first + i*step) & bit) && 0 == (readCell(first + i*step) & crossing)) ;
+			consumer.accept(cd, line, start, i) ;
+		}
+	}
 
     /**
      * Inner class to provide an iterator that delivers tuples of [start,end] indices
@@ -907,15 +1095,20 @@ public class Floorplan {
 	 * @param cw_bit like CW_LEFT, CW_RIGHT, CW_TOP, CW_BOTTOM
 	 */
 	private void setBitToZero(int x, int y, int cw_bit) {
-		cells[x][y] &= ~cw_bit;
+		setBitToZero(getIndex(x, y), cw_bit) ;
 	}
 	/**
-	 * Sets all wallboard bits to zero for a given cell
-	 * @param x coordinate of cell, {@code 0 <= x < width}
-	 * @param y coordinate of cell, {@code 0 <= y < height}
+	 * Sets the bits of the given bitmask to zero for the cell with the given index,
+	 * updates fingerprint and journal.
+	 * @param index of cell, {@code 0 <= index < width*height}
+	 * @param bitmask is the bitmask to use for clearing bits
 	 */
-	private void setAllToZero(int x, int y) {
-		setBitToZero(x, y, CW_ALL) ;
+	private void setBitToZero(int index, int bitmask) {
+		final int old = andNotCell(index, bitmask);
+		if (fingerprintValid)
+			fingerprint ^= getContribution(index, old) ^ getContribution(index, old & ~bitmask) ;
+		if (0 != (old & bitmask))
+			recordChange(index, index+1, old & bitmask, false) ;
 	}
 
 	//////// replace bitmask access 
@@ -924,10 +1117,10 @@ public class Floorplan {
 	// better to directly change client classes
 	//
 	protected boolean hasMaskedBitsTrue(int x, int y, int bitmask) {
-		return (cells[x][y] & bitmask) != 0;
+		return (getValueOfCell(x, y) & bitmask) != 0;
 	}
 	protected boolean hasMaskedBitsFalse(int x, int y, int bitmask) {
-		return (cells[x][y] & bitmask) == 0;
+		return (getValueOfCell(x, y) & bitmask) == 0;
 	}
 
 	/**
@@ -959,9 +1152,209 @@ public class Floorplan {
 	 * @param bitmask is the bitmask to use for adding 1's
 	 */
 	private void setBitToOne(int x, int y, int bitmask) {
-		cells[x][y] |= bitmask ;
+		setBitToOne(getIndex(x, y), bitmask) ;
 	}
-
+	/**
+	 * Sets the bits of the given bitmask to one for the cell with the given index,
+	 * updates fingerprint and journal.
+	 * @param index of cell, {@code 0 <= index < width*height}
+	 * @param bitmask is the bitmask to use for adding 1's
+	 */
+	private void setBitToOne(int index, int bitmask) {
+		final int old = orCell(index, bitmask) ;
+		if (fingerprintValid)
+			fingerprint ^= getContribution(index, old) ^ getContribution(index, old | bitmask) ;
+		if (0 != (bitmask & ~old))
+			recordChange(index, index+1, bitmask & ~old, true) ;
+	}
+	/**
+	 * Sets the bits of the given bitmask to 1 for a range of cells.
+	 * Updating the fingerprint cell by cell would take more time than the
+	 * operation itself, so the fingerprint is recomputed when it is needed next.
+	 * With a journal, cells are changed one by one to record each change.
+	 * @param from index of first cell, inclusive
+	 * @param to index of last cell, exclusive
+	 * @param bitmask is the bitmask to use for adding 1's
+	 */
+	private void setBitsToOne(int from, int to, int bitmask) {
+		if (null != journal) {
+			for (int i = from; i < to; i++)
+				setBitToOne(i, bitmask) ;
+			return ;
+		}
+		orCells(from, to, bitmask) ;
+		recordChange(from, to, bitmask, true) ;
+		fingerprintValid = false ;
+	}
+	/**
+	 * Sets the bits of the given bitmask to 0 for a range of cells,
+	 * see {@link #setBitsToOne(int, int, int)}.
+	 * @param from index of first cell, inclusive
+	 * @param to index of last cell, exclusive
+	 * @param bitmask is the bitmask to use for clearing bits
+	 */
+	private void setBitsToZero(int from, int to, int bitmask) {
+		if (null != journal) {
+			for (int i = from; i < to; i++)
+				setBitToZero(i, bitmask) ;
+			return ;
+		}
+		andNotCells(from, to, bitmask) ;
+		recordChange(from, to, bitmask, false) ;
+		fingerprintValid = false ;
+	}
+	/**
+	 * Brings the journal and the room index up to date with a change
+	 * of cells that has already happened in storage.
+	 * A range of more than one cell only comes without a journal,
+	 * with a journal, cells are changed and recorded one by one.
+	 * Subclasses that allow concurrent changes override this method
+	 * to serialize these updates.
+	 * @param from index of first cell, inclusive
+	 * @param to index of last cell, exclusive
+	 * @param bitmask bits that changed, for a range of cells the bits that were set to the new value
+	 * @param set true if the bits changed to 1, false if they changed to 0
+	 */
+	protected void recordChange(int from, int to, int bitmask, boolean set) {
+		if (null != journal)
+			journal.record(from, bitmask, set) ;
+		if (null != roomIndex && 0 != (bitmask & CW_IN_ROOM))
+			roomIndex.set(from, to, set) ;
+	}
+	////////////////// journal of changes ////////////////////////////////////////
+	/**
+	 * Starts to record all changes to cells in a new journal.
+	 * Derived structures can then catch up with changes by a replay
+	 * or by listening to the journal, and the floorplan can go back
+	 * to an earlier state with {@link #undoTo(long)}.
+	 * Note that operations on many cells, e.g., {@link #initialize()},
+	 * record each cell and take more time with a journal.
+	 * @param capacity is the number of changes the journal holds, see {@link FloorplanJournal}
+	 * @return the new journal
+	 */
+	public FloorplanJournal startJournal(int capacity) {
+		journal = new FloorplanJournal(capacity) ;
+		return journal ;
+	}
+	/**
+	 * Stops recording changes, the journal keeps its entries
+	 * but is no longer connected to this floorplan.
+	 */
+	public void stopJournal() {
+		journal = null ;
+	}
+	/**
+	 * Gives the journal that records changes.
+	 * @return the journal, null if changes are not recorded
+	 */
+	public FloorplanJournal getJournal() {
+		return journal ;
+	}
+	/**
+	 * Reverts all changes since the given mark in reverse order
+	 * and removes them from the journal. Listeners of the journal
+	 * receive each reverse change.
+	 * @param mark obtained from {@link FloorplanJournal#mark()} of the current journal
+	 * @throws IllegalStateException if there is no journal or it no longer holds 
+	 * all changes since the mark
+	 */
+	public void undoTo(long mark) {
+		if (null == journal)
+			throw new IllegalStateException("Floorplan has no journal") ;
+		journal.checkMark(mark) ;
+		while (journal.mark() > mark) {
+			final long entry = journal.removeLast() ;
+			final int index = FloorplanJournal.getIndex(entry) ;
+			final int bitmask = FloorplanJournal.getBitmask(entry) ;
+			final boolean set = FloorplanJournal.isSet(entry) ;
+			final int old = set ? andNotCell(index, bitmask) : orCell(index, bitmask) ;
+			if (fingerprintValid)
+				fingerprint ^= getContribution(index, old) ^ getContribution(index, old ^ bitmask) ;
+			if (null != roomIndex && 0 != (bitmask & CW_IN_ROOM))
+				roomIndex.set(index, index+1, !set) ;
+			journal.notifyListeners(index, bitmask, !set) ;
+		}
+	}
+	/**
+	 * Copies the values of all cells from the given floorplan,
+	 * meant for copy constructors of subclasses.
+	 * @param other provides the cells to copy, same dimensions as this floorplan
+	 */
+	protected void copyCellsFrom(Floorplan other) {
+		for (int i = 0; i < width*height; i++) {
+			orCell(i, other.getValueOfCell(i)) ;
+		}
+		fingerprintValid = false ;
+		roomIndex = null ; // rebuilt on demand
+	}
+	////////////////// storage of cells, subclasses may override all storage methods together ///////////////////
+	/**
+	 * Reads the value of a cell from storage.
+	 * @param index of cell, {@code 0 <= index < width*height}
+	 * @return value with internal encoding of wallboards and other attributes
+	 */
+	protected int readCell(int index) {
+		return cells[index] ;
+	}
+	/**
+	 * Sets the given bits of a cell to 1 in storage.
+	 * @param index of cell, {@code 0 <= index < width*height}
+	 * @param bitmask bits to set
+	 * @return value of the cell before the operation
+	 */
+	protected int orCell(int index, int bitmask) {
+		final int old = cells[index] ;
+		cells[index] = old | bitmask ;
+		return old ;
+	}
+	/**
+	 * Sets the given bits of a cell to 0 in storage.
+	 * @param index of cell, {@code 0 <= index < width*height}
+	 * @param bitmask bits to clear
+	 * @return value of the cell before the operation
+	 */
+	protected int andNotCell(int index, int bitmask) {
+		final int old = cells[index] ;
+		cells[index] = old & ~bitmask ;
+		return old ;
+	}
+	/**
+	 * Sets the given bits to 1 for a range of cells.
+	 * The loop over the array is simple enough for the just-in-time compiler
+	 * to process several cells with a single vector instruction.
+	 * Subclasses that keep cells elsewhere get a loop over {@link #orCell(int, int)},
+	 * subclasses that keep some bits in the int array need to override this method.
+	 * @param from index of first cell, inclusive
+	 * @param to index of last cell, exclusive
+	 * @param bitmask bits to set
+	 */
+	protected void orCells(int from, int to, int bitmask) {
+		if (null == cells) {
+			for (int i = from; i < to; i++)
+				orCell(i, bitmask);
+			return;
+		}
+		for (int i = from; i < to; i++)
+			cells[i] |= bitmask;
+	}
+	/**
+	 * Sets the given bits to 0 for a range of cells,
+	 * see {@link #orCells(int, int, int)}.
+	 * @param from index of first cell, inclusive
+	 * @param to index of last cell, exclusive
+	 * @param bitmask bits to clear
+	 */
+	protected void andNotCells(int from, int to, int bitmask) {
+		if (null == cells) {
+			for (int i = from; i < to; i++)
+				andNotCell(i, bitmask);
+			return;
+		}
+		final int keep = ~bitmask;
+		for (int i = from; i < to; i++)
+			cells[i] &= keep;
+	}
+	
 	///////////////// code for debugging ///////////////////////////////////////
 	private void dbg(String str) {
 		System.out.println("Cells: "+str);
@@ -977,7 +1370,7 @@ public class Floorplan {
 		{
 			prefix = " i:" + i + " j:";
 			for (int j = 0 ; j < height ; j++)
-				s += prefix + j + "=" + cells[i][j] ;
+				s += prefix + j + "=" + getValueOfCell(i, j) ;
 			s += "\n" ;
 		}
 		return s ;
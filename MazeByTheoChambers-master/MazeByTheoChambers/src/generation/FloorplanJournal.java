@@ -0,0 +1,177 @@
+package generation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class records changes to the cells of a floorplan such that
+ * structures derived from a floorplan can catch up with its changes
+ * instead of being rebuilt from scratch.
+ *
+ * Each entry holds the index of a cell, the bits that changed and
+ * whether they were set to 1 or to 0. Only bits that actually changed
+ * are recorded, so an entry can be undone exactly. Entries are kept in
+ * a ring buffer of primitive longs with a fixed capacity; once it is full,
+ * each new entry overwrites the oldest one.
+ *
+ * Entries are numbered in the order they are recorded. A mark is the
+ * number of the next entry, see {@link #mark()}. A consumer remembers a mark
+ * and later asks for all entries since then with {@link #replay(long, Listener)},
+ * or it registers as a listener to hear about each change as it happens.
+ * The floorplan can go back to an earlier state with
+ * {@link Floorplan#undoTo(long)}, which removes entries from the journal
+ * and tells listeners about the reverse changes.
+ *
+ * A journal belongs to a single floorplan, see {@link Floorplan#startJournal(int)}.
+ * It is not safe for concurrent use, same as the Floorplan class.
+ */
+public class FloorplanJournal {
+	/**
+	 * Receives changes to cells.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * @param index of cell, see {@link Floorplan#getIndex(int, int)}
+		 * @param bitmask bits of the cell that changed
+		 * @param set is true if the bits changed to 1, false if they changed to 0
+		 */
+		void cellChanged(int index, int bitmask, boolean set);
+	}
+
+	// an entry is index << 32 | SET | bitmask
+	private static final long SET = 1L << 31;
+	private static final long BITMASK = SET - 1;
+
+	private final long[] entries ; // ring buffer, entry with number n is at n & (entries.length-1)
+	private long next ; // number of next entry
+	private long oldest ; // number of oldest entry that has not been overwritten
+	private final List<Listener> listeners = new ArrayList<>();
+
+	/**
+	 * Constructor
+	 * @param capacity is the number of entries to keep,
+	 * rounded up to a power of two, {@code 0 < capacity <= 2^30}
+	 */
+	public FloorplanJournal(int capacity) {
+		if (capacity <= 0 || capacity > (1 << 30))
+			throw new IllegalArgumentException("Capacity out of range: " + capacity);
+		int n = 1;
+		while (n < capacity)
+			n <<= 1;
+		entries = new long[n];
+	}
+	/**
+	 * Gives the number of entries the journal can hold.
+	 * @return capacity, a power of two
+	 */
+	public int getCapacity() {
+		return entries.length;
+	}
+	/**
+	 * Gives a mark for the current state, i.e., the number of the next entry.
+	 * @return mark for the current state
+	 */
+	public long mark() {
+		return next;
+	}
+	/**
+	 * Gives the mark of the oldest entry that the journal still holds.
+	 * Replay and undo are possible for marks from this one up to the current mark.
+	 * @return mark of oldest entry
+	 */
+	public long getOldestMark() {
+		return oldest;
+	}
+	/**
+	 * Tells if the journal still holds all entries since the given mark.
+	 * @param mark obtained from {@link #mark()}
+	 * @return true if replay and undo are possible for the mark, false otherwise
+	 */
+	public boolean isAvailable(long mark) {
+		return oldest <= mark && mark <= next;
+	}
+	/**
+	 * Delivers all entries from the given mark up to the current state
+	 * in the order they were recorded.
+	 * @param from mark obtained from {@link #mark()}
+	 * @param listener receives the entries
+	 * @return mark for the current state, to continue with the next replay
+	 * @throws IllegalStateException if entries since the mark have been overwritten
+	 */
+	public long replay(long from, Listener listener) {
+		checkMark(from);
+		for (long n = from; n < next; n++) {
+			final long entry = entries[(int)n & (entries.length-1)];
+			listener.cellChanged(getIndex(entry), getBitmask(entry), isSet(entry));
+		}
+		return next;
+	}
+	/**
+	 * Registers a listener to receive each change as it happens,
+	 * including reverse changes from an undo.
+	 * @param listener receives changes, not null
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+	/**
+	 * Removes a listener.
+	 * @param listener to remove
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+	/**
+	 * Records a change and tells listeners about it.
+	 */
+	void record(int index, int bitmask, boolean set) {
+		entries[(int)next & (entries.length-1)] = ((long)index << 32) | (set ? SET : 0) | bitmask;
+		next++;
+		if (next - oldest > entries.length)
+			oldest = next - entries.length;
+		notifyListeners(index, bitmask, set);
+	}
+	/**
+	 * Removes the latest entry, the journal must hold an entry,
+	 * i.e., {@code getOldestMark() < mark()}.
+	 * @return the entry, index << 32 | SET | bitmask
+	 */
+	long removeLast() {
+		next--;
+		return entries[(int)next & (entries.length-1)];
+	}
+	/**
+	 * Gives the cell index of an entry.
+	 */
+	static int getIndex(long entry) {
+		return (int)(entry >>> 32);
+	}
+	/**
+	 * Gives the bits that changed with an entry.
+	 */
+	static int getBitmask(long entry) {
+		return (int)(entry & BITMASK);
+	}
+	/**
+	 * Tells if the bits of an entry changed to 1.
+	 */
+	static boolean isSet(long entry) {
+		return 0 != (entry & SET);
+	}
+	/**
+	 * Tells listeners about a change without recording it.
+	 */
+	void notifyListeners(int index, int bitmask, boolean set) {
+		for (int i = 0; i < listeners.size(); i++)
+			listeners.get(i).cellChanged(index, bitmask, set);
+	}
+	/**
+	 * @throws IllegalStateException if the journal does not hold all entries since the mark
+	 */
+	void checkMark(long mark) {
+		if (!isAvailable(mark))
+			throw new IllegalStateException("Journal does not hold the entries since mark " + mark
+					+ ", available marks are " + getOldestMark() + " to " + next);
+	}
+}
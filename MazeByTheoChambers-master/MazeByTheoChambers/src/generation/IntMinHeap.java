@@ -0,0 +1,107 @@
+package generation;
+
+/**
+ * A binary min heap of (key,value) pairs of int values.
+ *
+ * The heap works on two parallel arrays to avoid boxing and
+ * object allocation per entry, arrays grow on demand and
+ * are kept across calls to {@link #clear()} such that a heap
+ * can be reused for many searches without allocating memory.
+ * Entries with the same key are delivered in no particular order.
+ * There is no decrease-key operation, a search is expected to
+ * add a position again and skip outdated entries when they come up.
+ *
+ * History: class resulted from adding point-to-point searches to the maze.
+ * It is used only internally to the package.
+ */
+final class IntMinHeap {
+	private int[] keys ; // keys in heap order
+	private int[] values ; // values that belong to keys at same index
+	private int size ; // number of entries in the heap
+
+	/**
+	 * Constructor
+	 * @param capacity initial number of entries that fit without growing, at least 1
+	 */
+	IntMinHeap(int capacity) {
+		keys = new int[Math.max(1, capacity)];
+		values = new int[keys.length];
+	}
+	/**
+	 * Tells if the heap is empty.
+	 * @return true if there are no entries, false otherwise
+	 */
+	boolean isEmpty() {
+		return 0 == size;
+	}
+	/**
+	 * @return the number of entries in the heap
+	 */
+	int size() {
+		return size;
+	}
+	/**
+	 * Removes all entries, the capacity is kept.
+	 */
+	void clear() {
+		size = 0;
+	}
+	/**
+	 * Adds an entry to the heap.
+	 * @param key determines the position in the heap
+	 * @param value is delivered with the key
+	 */
+	void add(int key, int value) {
+		if (size == keys.length) {
+			keys = java.util.Arrays.copyOf(keys, 2*size);
+			values = java.util.Arrays.copyOf(values, 2*size);
+		}
+		// sift up
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key)
+				break;
+			keys[i] = keys[parent];
+			values[i] = values[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+	/**
+	 * Gives the smallest key.
+	 * Precondition: heap is not empty
+	 * @return the smallest key in the heap
+	 */
+	int peekKey() {
+		assert size > 0 : "heap is empty";
+		return keys[0];
+	}
+	/**
+	 * Removes the entry with the smallest key.
+	 * Precondition: heap is not empty
+	 * @return the value of the removed entry
+	 */
+	int poll() {
+		assert size > 0 : "heap is empty";
+		final int result = values[0];
+		final int key = keys[--size];
+		final int value = values[size];
+		// sift down the last entry from the root
+		int i = 0;
+		int child;
+		while ((child = 2*i + 1) < size) {
+			if (child + 1 < size && keys[child + 1] < keys[child])
+				child++;
+			if (key <= keys[child])
+				break;
+			keys[i] = keys[child];
+			values[i] = values[child];
+			i = child;
+		}
+		keys[i] = key;
+		values[i] = value;
+		return result;
+	}
+}
@@ -1,7 +1,6 @@
 package generation;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import gui.Constants;
@@ -42,85 +41,53 @@ public class ListOfWallsBuilder {
 		this.colchange = colchange;
 	}
 	/**
-	 * Identifies continuous sequences of wallboards on the maze and fills the wall list 
+	 * Identifies continuous sequences of wallboards on the maze and fills the wall list.
+	 * All sequences come from a single pass over the floorplan, 
+	 * see {@link Floorplan#forEachWallRun(Floorplan.WallRunConsumer)}, 
+	 * such that the only objects created are the walls themselves.
+	 * Walls for horizontal wallboards come first, then walls for vertical wallboards.
 	 * @return vector of walls
 	 */
 	public List<Wall> generateWalls() {
 		ArrayList<Wall> result = new ArrayList<>();
-		generateWallsForHorizontalWallboards(result); 
-		generateWallsForVerticalWallboards(result);
+		floorplan.forEachWallRun((cd, line, start, end) -> result.add(createWall(cd, line, start, end)));
 		// starting positions for walls seem to be chosen such that walls represent top or left wallboards
 		return result ;
 	}
-
-	/**
-     * Identify continuous sequences of wallboards in a vertical direction
-     * @param sl the list of walls that carries the result of the computation
-     */
-	   private void generateWallsForVerticalWallboards(ArrayList<Wall> sl) {
-	        int x;
-	        int y;
-	        Iterator<int[]> it;
-	        int[] cur;
-	        // we search for vertical wallboards, so for each row
-	        for (x = 0; x < width; x++) {
-	            it = floorplan.iterator(x, 0, CardinalDirection.West);
-	            while(it.hasNext()) {
-	                cur = it.next();
-	                int starty = cur[0];
-	                y = cur[1];
-	                // create wall with (x,starty) being the actual start position of the wall, 
-                    // y-starty being the positive length
-                    sl.add(new Wall(x*Constants.MAP_UNIT, starty*Constants.MAP_UNIT,
-                            0, (y-starty)*Constants.MAP_UNIT, dists.getDistanceValue(x, starty), colchange));
-	            }
-	            
-	            it = floorplan.iterator(x, 0, CardinalDirection.East);
-                while(it.hasNext()) {
-                    cur = it.next();
-                    int starty = cur[0];
-                    y = cur[1];
-                    // create wall with (x+1,y) being being one off in both directions from the last cell in this wall, starty-y being the negative length
-                    // since we are looking at right wallboards, one off in the right direction (x+1) are then cells that have this wall on its left hand side
-                    // for some reason the end position is used as a starting position and therefore the length & direction is inverse 
-                    sl.add(new Wall((x+1)*Constants.MAP_UNIT, y*Constants.MAP_UNIT,
-                            0, (starty-y)*Constants.MAP_UNIT, dists.getDistanceValue(x, starty), colchange));
-                }
-	        }
-	    }
 	/**
-     * Identify continuous sequences of wallboards in a horizontal direction
-     * @param sl  the list of walls that carries the result of the computation
-     */
-    private void generateWallsForHorizontalWallboards(ArrayList<Wall> sl) {
-        int x;
-        int y;
-        Iterator<int[]> it;
-        int[] cur;
-        // we search for horizontal wallboards, so for each column
-        for (y = 0; y < height; y++) {
-            // first round through rows
-            it = floorplan.iterator(0,y, CardinalDirection.North);
-            while(it.hasNext()) {
-                cur = it.next();
-                int startx = cur[0];
-                x = cur[1];
-                // create wall with (x,y) being the end positions, startx-x being the negative length
-                // note the (x,y) is not part of the wall
-                sl.add(new Wall(x*Constants.MAP_UNIT, y*Constants.MAP_UNIT,
-                        (startx-x)*Constants.MAP_UNIT, 0, dists.getDistanceValue(startx, y), colchange));
-            }
-            // second round through rows, same for bottom wallboards
-            it = floorplan.iterator(0,y, CardinalDirection.South);
-            while(it.hasNext()) {
-                cur = it.next();
-                int startx = cur[0];
-                x = cur[1];
-                // create wall with (startx,y+1) being one below the start position, x-startx being the positive length
-                // so this may represent a wallboard at the bottom of the wall as the top wallboard one below
-                sl.add(new Wall(startx*Constants.MAP_UNIT, (y+1)*Constants.MAP_UNIT,
-                        (x-startx)*Constants.MAP_UNIT, 0, dists.getDistanceValue(startx, y), colchange));
-            }
-        }
-    }
+	 * Creates the wall for a continuous sequence of wallboards.
+	 * @param cd gives the side of the cells where the wallboards are
+	 * @param line is the y coordinate of the row for North and South,
+	 * the x coordinate of the column for East and West
+	 * @param start is the first cell of the sequence
+	 * @param end is the first cell after the sequence
+	 * @return the wall
+	 */
+	private Wall createWall(CardinalDirection cd, int line, int start, int end) {
+		switch (cd) {
+		case North :
+			// create wall with (end,y) being the end positions, start-end being the negative length
+			// note the (end,y) is not part of the wall
+			return new Wall(end*Constants.MAP_UNIT, line*Constants.MAP_UNIT,
+					(start-end)*Constants.MAP_UNIT, 0, dists.getDistanceValue(start, line), colchange);
+		case South :
+			// create wall with (start,y+1) being one below the start position, end-start being the positive length
+			// so this may represent a wallboard at the bottom of the wall as the top wallboard one below
+			return new Wall(start*Constants.MAP_UNIT, (line+1)*Constants.MAP_UNIT,
+					(end-start)*Constants.MAP_UNIT, 0, dists.getDistanceValue(start, line), colchange);
+		case West :
+			// create wall with (x,start) being the actual start position of the wall, 
+			// end-start being the positive length
+			return new Wall(line*Constants.MAP_UNIT, start*Constants.MAP_UNIT,
+					0, (end-start)*Constants.MAP_UNIT, dists.getDistanceValue(line, start), colchange);
+		case East :
+			// create wall with (x+1,end) being being one off in both directions from the last cell in this wall, start-end being the negative length
+			// since we are looking at right wallboards, one off in the right direction (x+1) are then cells that have this wall on its left hand side
+			// for some reason the end position is used as a starting position and therefore the length & direction is inverse 
+			return new Wall((line+1)*Constants.MAP_UNIT, end*Constants.MAP_UNIT,
+					0, (start-end)*Constants.MAP_UNIT, dists.getDistanceValue(line, start), colchange);
+		default:
+			throw new RuntimeException("Unsupported value in enum type") ;
+		}
+	}
 }
@@ -0,0 +1,153 @@
+package generation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is a floorplan whose cells live in a file that is mapped
+ * into memory. The operating system loads pages of the file on demand
+ * and writes changed pages back, so a maze can be larger than the
+ * available memory and is only read in as far as it is used.
+ *
+ * The file starts with a header of {@code HEADER_BYTES} bytes:
+ * a magic number, the format version, the width and the height of the maze,
+ * each as a 4 byte integer. Cells follow as 4 byte integers in little endian
+ * byte order, row by row as in the Floorplan class.
+ *
+ * A new file is set up with {@link #create(Path, int, int)}, all cells are 0
+ * as for a new Floorplan. An existing file is opened with
+ * {@link #open(Path, boolean)}, for reading only or for reading and writing.
+ * Any attempt to change a floorplan that is opened for reading only
+ * throws a ReadOnlyBufferException.
+ *
+ * Changes are written to the file by the operating system at some point,
+ * {@link #flush()} forces them to the file right away and
+ * {@link #close()} flushes and unmaps the file.
+ * A maze builder writes through the mapping if it obtains its
+ * floorplan from {@link #provider(Path)}.
+ */
+public class MappedFloorplan extends OffHeapFloorplan {
+	/**
+	 * Number of bytes of the header in front of the cells.
+	 */
+	public static final int HEADER_BYTES = 16;
+	private static final int MAGIC = 0x4D415A45; // "MAZE"
+	private static final int VERSION = 1;
+
+	private final boolean writable ; // true if opened for reading and writing
+
+	private MappedFloorplan(int w, int h, ByteBuffer[] buffers, boolean writable) {
+		super(w, h, buffers);
+		this.writable = writable;
+	}
+	/**
+	 * Creates a new file for a floorplan of the given dimensions and maps it
+	 * into memory for reading and writing. An existing file is overwritten.
+	 * @param file for the floorplan, can not be null
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 * @return the floorplan with all cells set to 0
+	 * @throws IOException if the file can not be created or mapped
+	 */
+	public static MappedFloorplan create(Path file, int w, int h) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(w).putInt(h).flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			// mapping beyond the end of the file extends it with zeros
+			return new MappedFloorplan(w, h, map(channel, FileChannel.MapMode.READ_WRITE, w, h), true);
+		}
+	}
+	/**
+	 * Opens an existing file with a floorplan and maps it into memory.
+	 * @param file with a floorplan, can not be null
+	 * @param writable is true to allow for changes, false for reading only
+	 * @return the floorplan with the cells in the file
+	 * @throws IOException if the file can not be read or does not contain a floorplan
+	 */
+	public static MappedFloorplan open(Path file, boolean writable) throws IOException {
+		final StandardOpenOption[] options = writable ?
+				new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE} :
+				new StandardOpenOption[] {StandardOpenOption.READ};
+		try (FileChannel channel = FileChannel.open(file, options)) {
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header, header.position()) < 0)
+					throw new IOException("MappedFloorplan: file too short for header: " + file);
+			}
+			header.flip();
+			if (MAGIC != header.getInt() || VERSION != header.getInt())
+				throw new IOException("MappedFloorplan: not a floorplan file: " + file);
+			final int w = header.getInt();
+			final int h = header.getInt();
+			if (w <= 0 || h <= 0 || channel.size() < HEADER_BYTES + 4L*w*h)
+				throw new IOException("MappedFloorplan: invalid dimensions or truncated file: " + file);
+			final FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+			return new MappedFloorplan(w, h, map(channel, mode, w, h), writable);
+		}
+	}
+	/**
+	 * Gives a provider for the MazeBuilder that creates the floorplan in the given file.
+	 * I/O errors are reported as an UncheckedIOException.
+	 * @param file for the floorplan, can not be null
+	 * @return provider that calls {@link #create(Path, int, int)}
+	 */
+	public static MazeBuilder.FloorplanProvider provider(Path file) {
+		return (w, h) -> {
+			try {
+				return create(file, w, h);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+	/**
+	 * Maps all segments of cells, the mappings remain valid after the channel is closed.
+	 */
+	private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, int w, int h) throws IOException {
+		final long n = (long)w*h;
+		final ByteBuffer[] result = new ByteBuffer[getNumberOfSegments(n)];
+		for (int s = 0; s < result.length; s++) {
+			final long offset = HEADER_BYTES + 4L*((long)s << SEGMENT_SHIFT);
+			result[s] = channel.map(mode, offset, 4L*getSegmentCells(n, s)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return result;
+	}
+	/**
+	 * @return true if the floorplan can be changed, false if it is opened for reading only
+	 */
+	public boolean isWritable() {
+		return writable;
+	}
+	/**
+	 * Forces all changes to the file.
+	 * @throws IllegalStateException if floorplan is closed
+	 */
+	public void flush() {
+		if (!writable)
+			return;
+		for (ByteBuffer b : getBuffers()) {
+			((MappedByteBuffer)b).force();
+		}
+	}
+	/**
+	 * Forces all changes to the file and unmaps it.
+	 * Calling close more than once has no effect.
+	 */
+	@Override
+	public void close() {
+		if (isClosed())
+			return;
+		flush();
+		super.close();
+	}
+}
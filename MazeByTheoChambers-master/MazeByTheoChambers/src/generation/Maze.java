@@ -3,6 +3,8 @@
  */
 package generation;
 
+import java.util.Iterator;
+
 
 /**
  * A Maze encapsulates all relevant information about a maze 
@@ -93,6 +95,32 @@ public interface Maze {
 	 * @return the length of path to the exit
 	 */
 	int getDistanceToExit(int x, int y);
+	/**
+	 * Tells how many steps it is on a shortest path between
+	 * two arbitrary positions. Note that the distance to the exit 
+	 * as given by {@link #getDistanceToExit(int, int)} counts the exit 
+	 * position itself, so it is one more than the number of steps.
+	 * @param ax is on the horizontal axis, {@code 0 <= ax < width}
+	 * @param ay is on the vertical axis, {@code 0 <= ay < height}
+	 * @param bx is on the horizontal axis, {@code 0 <= bx < width}
+	 * @param by is on the vertical axis, {@code 0 <= by < height}
+	 * @return the number of steps from (ax,ay) to (bx,by), Distance.INFINITY if there is no path
+	 */
+	int getDistanceBetween(int ax, int ay, int bx, int by);
+	/**
+	 * Finds a shortest path between two arbitrary positions.
+	 * The path is encoded as an array of steps where each entry is
+	 * the ordinal of the {@link CardinalDirection} of that step,
+	 * e.g., {@code CardinalDirection.values()[path[0]]} is the direction
+	 * of the first step from (fromX,fromY).
+	 * @param fromX is on the horizontal axis, {@code 0 <= fromX < width}
+	 * @param fromY is on the vertical axis, {@code 0 <= fromY < height}
+	 * @param toX is on the horizontal axis, {@code 0 <= toX < width}
+	 * @param toY is on the vertical axis, {@code 0 <= toY < height}
+	 * @return the directions of all steps, an empty array if both positions
+	 * are the same, null if there is no path
+	 */
+	byte[] findPath(int fromX, int fromY, int toX, int toY);
 	/**
 	 * Tells if one faces a wallboard at position (x,y) looking into the 
 	 * given direction. Note that the cardinal direction is absolute
@@ -114,6 +142,27 @@ public interface Maze {
 	 * @return int array of length 2 with (x',y') coordinates for neighbor
 	 */
 	public int[] getNeighborCloserToExit(int x, int y);
+	/**
+	 * Gives the direction from the given (x,y) position towards a neighbor
+	 * that is closer to the exit, i.e., the direction of the next step
+	 * on the solution path. This is meant for frequent calls and does
+	 * not allocate memory.
+	 * @param x is on the horizontal axis, {@code 0 <= x < width}
+	 * @param y is on the vertical axis, {@code 0 <= y < height}
+	 * @return direction of the next step, null for the exit position
+	 * and for positions without a path to the exit
+	 */
+	public CardinalDirection getNextHopDirection(int x, int y);
+	/**
+	 * Provides the positions on the solution path from the given (x,y) 
+	 * position to the exit, starting with (x,y) and ending with the exit.
+	 * The iterator may deliver the same array object with updated 
+	 * coordinates on each call of next.
+	 * @param x is on the horizontal axis, {@code 0 <= x < width}
+	 * @param y is on the vertical axis, {@code 0 <= y < height}
+	 * @return iterator over (x,y) coordinates on the solution path
+	 */
+	public Iterator<int[]> getSolutionPath(int x, int y);
 	/**
 	 * Provides coordinates (x,y) of the starting position for this maze.
 	 * Maze generation algorithms are expected to use the position
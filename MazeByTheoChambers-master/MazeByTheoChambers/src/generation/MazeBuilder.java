@@ -33,6 +33,9 @@ public class MazeBuilder implements Runnable {
 	// class internal local variables
 	protected SingleRandom random ; // random number stream, used to make randomized decisions, e.g for direction to go
 	Order order; // describes what is wanted, e.g. a perfect maze or not
+	private Distance.Traversal traversal = Distance.Traversal.Sequential; // how distances are computed, parallel helps for very large mazes only
+	private boolean compactDistances = false; // if true, distances are delivered in compact storage to save memory
+	private FloorplanProvider floorplanProvider = Floorplan::new; // creates the floorplan for each order
 	
 	// constants
 	static final long SLEEP_INTERVAL = 100 ; //constant used for brief breaks to recognize interrupted signal, unit is millisecond
@@ -46,6 +49,45 @@ public class MazeBuilder implements Runnable {
 	public MazeBuilder(){
 	}
 
+	/**
+	 * Selects how distances to the exit are computed for the generated maze.
+	 * The setting is not affected by a reset and applies to all subsequent orders.
+	 * @param traversal is either sequential (default) or parallel, must not be null
+	 */
+	public void setDistanceTraversal(Distance.Traversal traversal) {
+		this.traversal = traversal;
+	}
+	/**
+	 * Selects if distances of the generated maze are delivered in compact storage,
+	 * see {@link Distance#compact()}.
+	 * The setting is not affected by a reset and applies to all subsequent orders.
+	 * @param compactDistances is true for compact storage, false (default) otherwise
+	 */
+	public void setCompactDistances(boolean compactDistances) {
+		this.compactDistances = compactDistances;
+	}
+	/**
+	 * Creates the floorplan for a maze of given dimensions.
+	 * It allows for floorplans that keep cells in a different kind of storage,
+	 * e.g., {@code OffHeapFloorplan::new} for very large mazes.
+	 */
+	@FunctionalInterface
+	public interface FloorplanProvider {
+		/**
+		 * @param width of maze, {@code 0 < width}
+		 * @param height of maze, {@code 0 < height}
+		 * @return a new floorplan where all cells are 0
+		 */
+		Floorplan create(int width, int height);
+	}
+	/**
+	 * Selects how the floorplan for a maze is created.
+	 * The setting is not affected by a reset and applies to all subsequent orders.
+	 * @param floorplanProvider creates floorplans, default is {@code Floorplan::new}, must not be null
+	 */
+	public void setFloorplanProvider(FloorplanProvider floorplanProvider) {
+		this.floorplanProvider = floorplanProvider;
+	}
 	/**
 	 * Sets internal fields according to given order
 	 * @param order provides the spec for the maze generation from
@@ -64,7 +106,7 @@ public class MazeBuilder implements Runnable {
 		rooms = order.isPerfect() ? 0 : Constants.SKILL_ROOMS[skill];
 		expectedPartiters = Constants.SKILL_PARTCT[skill];
 		// instantiate data structures
-		floorplan = new Floorplan(width,height) ;
+		floorplan = floorplanProvider.create(width,height) ;
 		dists = new Distance(width,height) ;
 	}
 	/**
@@ -97,6 +139,8 @@ public class MazeBuilder implements Runnable {
 
 			// communicate results back to Controller
 			order.updateProgress(100); // Order interface promises to communicate 100% upon delivery
+			if (compactDistances)
+				dists.compact(); // distances do not change after delivery
 			order.deliver(new MazeContainer(width, height, floorplan, dists, root, startx, starty));
             // reset order and other fields for safe repeated operation and garbage collection
 			reset() ;
@@ -107,6 +151,9 @@ public class MazeBuilder implements Runnable {
 			// exception mechanism is basically used to exit method in a controlled way
 			// 
 			dbg("Catching signal to stop") ;
+			// floorplan is not delivered, release its native memory if it has any
+			if (floorplan instanceof OffHeapFloorplan)
+				((OffHeapFloorplan)floorplan).close();
 			// reset order and other fields for safe repeated operation and garbage collection
 			reset();
 		}
@@ -198,7 +245,7 @@ public class MazeBuilder implements Runnable {
 		// the search algorithms starts at some random point
 		generatePathways(); 
 
-		final int[] remote = dists.computeDistances(floorplan) ;
+		final int[] remote = dists.computeDistances(floorplan, traversal) ;
 
 		// identify cell with the greatest distance
 		final int[] pos = dists.getStartPosition();
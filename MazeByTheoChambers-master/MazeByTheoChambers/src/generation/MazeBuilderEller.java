@@ -0,0 +1,200 @@
+package generation;
+
+/**
+ * This class builds a maze with Eller's algorithm, which works
+ * one row at a time from top to bottom and only needs to know
+ * which cells of the current row are connected with each other.
+ *
+ * Cells of the current row are labeled with the set they belong to,
+ * two cells have the same set if there is a path between them in the rows done so far.
+ * For each row, the algorithm randomly deletes wallboards between neighboring
+ * cells of different sets and merges the sets. Then each set gets
+ * at least one randomly chosen opening to the row below, so the cells below
+ * continue the set and all other cells of the next row start a set of their own.
+ * In the last row, all neighboring cells of different sets are joined.
+ * This gives a spanning tree for a maze without rooms.
+ *
+ * The state of the algorithm is a few arrays with one entry per column,
+ * labels are numbers from 0 to width-1 and are merged with a small disjoint-set
+ * forest that starts over for each row. So the memory in addition to the floorplan
+ * does not depend on the height of the maze, which makes it the cheapest builder
+ * for very tall mazes. A row is finished once its openings to the row below
+ * are decided, a {@link RowListener} learns about each finished row as it goes.
+ *
+ * Rooms are cells without wallboards inside a border with a few doors.
+ * Openings that exist already, inside a room, join sets the same way as deleted
+ * wallboards do, and borders are left in place. A set that has no way to the
+ * row below since all its cells sit on a border, e.g. the last row of a room
+ * with doors elsewhere, would be cut off from the rest of the maze.
+ * In this case the algorithm deletes a wallboard on the border anyway,
+ * which adds a door.
+ */
+public class MazeBuilderEller extends MazeBuilder implements Runnable {
+
+	/**
+	 * Learns about rows of the floorplan that are finished, i.e.,
+	 * none of the wallboards of the row changes any more.
+	 */
+	@FunctionalInterface
+	public interface RowListener {
+		/**
+		 * @param floorplan that holds the row
+		 * @param y of the finished row
+		 */
+		void rowFinished(Floorplan floorplan, int y);
+	}
+
+	// values of chosen other than the index of a cell
+	private static final int CONTINUES = -1; // set has an opening to the row below already
+	private static final int FORCED = -2; // set has no cell that may open, the first cell opens a door
+
+	private RowListener rowListener ;
+
+	private int[] label ; // set of each cell in the current row, 0 <= label[x] < width
+	private int[] parent ; // disjoint-set forest over labels, parent[l] == l for a root
+	private int[] count ; // for the root of a set, number of cells that may open to the row below
+	private int[] chosen ; // for the root of a set, which of these cells opens for sure, counted from the last one
+	private int[] next ; // for the root of a set in this row, label in the next row, -1 if none yet
+
+	public MazeBuilderEller() {
+		super();
+		System.out.println("MazeBuilderEller uses Eller's algorithm to generate maze.");
+	}
+
+	/**
+	 * Sets the listener to learn about finished rows.
+	 * @param rowListener receives finished rows, null to receive none
+	 */
+	public void setRowListener(RowListener rowListener) {
+		this.rowListener = rowListener;
+	}
+
+	/**
+	 * This method generates pathways into the maze row by row with Eller's algorithm.
+	 */
+	@Override
+	protected void generatePathways() {
+		label = new int[width];
+		parent = new int[width];
+		count = new int[width];
+		chosen = new int[width];
+		next = new int[width];
+		// each cell of the first row is a set of its own
+		for (int x = 0; x < width; x++)
+			label[x] = x;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				parent[x] = x;
+				floorplan.setCellAsVisited(x, y);
+			}
+			joinRow(y, y == height-1);
+			if (y < height-1)
+				openRowBelow(y);
+			if (null != rowListener)
+				rowListener.rowFinished(floorplan, y);
+		}
+		label = null;
+		parent = null;
+		count = null;
+		chosen = null;
+		next = null;
+	}
+	/**
+	 * Merges sets of neighboring cells in a row, either by chance or,
+	 * for the last row, whenever they are different.
+	 * Neighbors without a wallboard in between are always merged.
+	 * @param y of the row
+	 * @param last is true for the last row
+	 */
+	private void joinRow(int y, boolean last) {
+		final Wallboard wallboard = new Wallboard(0, y, CardinalDirection.East);
+		for (int x = 0; x < width-1; x++) {
+			final int a = find(label[x]);
+			final int b = find(label[x+1]);
+			if (floorplan.hasNoWall(x, y, CardinalDirection.East)) {
+				parent[b] = a; // no effect if a == b
+				continue;
+			}
+			wallboard.setLocationDirection(x, y, CardinalDirection.East);
+			if (a != b && !floorplan.isPartOfBorder(wallboard)
+					&& (last || 0 == random.nextIntWithinInterval(0, 1))) {
+				floorplan.deleteWallboard(wallboard);
+				parent[b] = a;
+			}
+		}
+	}
+	/**
+	 * Opens wallboards towards the row below such that each set
+	 * continues in at least one cell, and labels the next row.
+	 * @param y of the row
+	 */
+	private void openRowBelow(int y) {
+		final Wallboard wallboard = new Wallboard(0, y, CardinalDirection.South);
+		for (int l = 0; l < width; l++) {
+			count[l] = 0;
+			chosen[l] = FORCED;
+			next[l] = -1;
+		}
+		// count the cells of each set that may open, a set with an opening
+		// that exists already continues anyway
+		for (int x = 0; x < width; x++) {
+			final int root = find(label[x]);
+			wallboard.setLocationDirection(x, y, CardinalDirection.South);
+			if (floorplan.hasNoWall(x, y, CardinalDirection.South))
+				chosen[root] = CONTINUES;
+			else if (!floorplan.isPartOfBorder(wallboard))
+				count[root]++;
+		}
+		for (int l = 0; l < width; l++) {
+			if (parent[l] == l && FORCED == chosen[l] && 0 < count[l])
+				chosen[l] = random.nextIntWithinInterval(0, count[l]-1);
+		}
+		// open the chosen cells and others by chance, candidates count down to find the chosen one
+		int fresh = 0; // number of labels in use in the next row
+		for (int x = 0; x < width; x++) {
+			final int root = find(label[x]);
+			wallboard.setLocationDirection(x, y, CardinalDirection.South);
+			boolean open = floorplan.hasNoWall(x, y, CardinalDirection.South);
+			if (!open) {
+				if (!floorplan.isPartOfBorder(wallboard))
+					open = (--count[root] == chosen[root]) || 0 == random.nextIntWithinInterval(0, 1);
+				else if (FORCED == chosen[root]) {
+					// set can not continue otherwise, open a door in the border
+					open = true;
+					chosen[root] = CONTINUES;
+				}
+				if (open)
+					floorplan.deleteWallboard(wallboard);
+			}
+			if (open) {
+				if (-1 == next[root])
+					next[root] = fresh++;
+				label[x] = next[root];
+			}
+			else
+				label[x] = -1;
+		}
+		// cells that do not continue a set start a new one
+		for (int x = 0; x < width; x++) {
+			if (-1 == label[x])
+				label[x] = fresh++;
+		}
+	}
+	/**
+	 * Finds the root of the set with the given label
+	 * and lets all labels on the path point directly to the root.
+	 * @param l label
+	 * @return root label
+	 */
+	private int find(int l) {
+		int root = l;
+		while (parent[root] != root)
+			root = parent[root];
+		while (parent[l] != root) {
+			final int n = parent[l];
+			parent[l] = root;
+			l = n;
+		}
+		return root;
+	}
+}
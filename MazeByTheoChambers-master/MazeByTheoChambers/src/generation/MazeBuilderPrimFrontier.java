@@ -0,0 +1,96 @@
+package generation;
+
+/**
+ * This class builds a maze with the same randomized version of Prim's algorithm
+ * as {@link MazeBuilderPrim} but keeps its set of candidate wallboards, the frontier,
+ * in an array of primitive ints instead of a list of Wallboard objects.
+ *
+ * A candidate is encoded as {@code index << 2 | direction} where index is the
+ * index of the cell in the floorplan, see {@link Floorplan#getIndex(int, int)},
+ * and direction is the ordinal of the CardinalDirection of the wallboard.
+ * A random candidate is extracted by replacing it with the last candidate of the array,
+ * which takes constant time while removing it from the middle of a list shifts
+ * all candidates behind it. The order of the candidates in the array does not
+ * matter since each one is equally likely to be picked, so the resulting mazes
+ * follow the same distribution as for MazeBuilderPrim.
+ * The same seed does not give the same maze, though, as candidates end up at
+ * different positions.
+ *
+ * No candidate enters the frontier twice: wallboards are added for a cell when it
+ * joins the spanning tree, which happens once, and only towards neighbors that are
+ * not in the tree yet, so the neighbor never adds the same wallboard from its side.
+ * This bounds the frontier by four candidates per cell.
+ * It needs the starting cell to be marked as visited, which MazeBuilderPrim does not do,
+ * so there a neighbor can add a wallboard back to the starting cell and, if it is reached
+ * along another path, tear it down and close a loop.
+ */
+public class MazeBuilderPrimFrontier extends MazeBuilder implements Runnable {
+	private static final CardinalDirection[] DIRECTIONS = CardinalDirection.values(); // values() gives a new array each time
+
+	private int[] frontier ; // candidate wallboards, index << 2 | direction
+	private int size ; // number of candidates in frontier
+	private Wallboard wallboard ; // reused to ask the floorplan about a candidate
+
+	public MazeBuilderPrimFrontier() {
+		super();
+		System.out.println("MazeBuilderPrimFrontier uses Prim's algorithm with a primitive frontier to generate maze.");
+	}
+
+	/**
+	 * This method generates pathways into the maze by using Prim's algorithm to generate a spanning tree for an undirected graph.
+	 * Random choices are the same as in MazeBuilderPrim: a random starting position
+	 * and then a random candidate out of the current frontier in each step.
+	 */
+	@Override
+	protected void generatePathways() {
+		frontier = new int[4*width*height];
+		size = 0;
+		wallboard = new Wallboard(0, 0, CardinalDirection.East);
+		// pick initial position (x,y) at some random position on the maze
+		int x = random.nextIntWithinInterval(0, width-1);
+		int y = random.nextIntWithinInterval(0, height-1);
+		floorplan.setCellAsVisited(x, y);
+		addCandidates(x, y);
+		while (size > 0) {
+			final int candidate = extractCandidateRandomly();
+			final int index = candidate >>> 2;
+			x = index % width;
+			y = index / width;
+			wallboard.setLocationDirection(x, y, DIRECTIONS[candidate & 3]);
+			// check if wallboard leads to a new cell that is not connected to the spanning tree yet
+			if (floorplan.canTearDown(wallboard)) {
+				floorplan.deleteWallboard(wallboard);
+				x = wallboard.getNeighborX();
+				y = wallboard.getNeighborY();
+				floorplan.setCellAsVisited(x, y);
+				addCandidates(x, y);
+			}
+		}
+		frontier = null;
+		wallboard = null;
+	}
+	/**
+	 * Picks a random candidate, moves the last candidate into its place and returns it.
+	 * Precondition: the frontier is not empty.
+	 * @return candidate from the frontier, randomly chosen
+	 */
+	private int extractCandidateRandomly() {
+		final int i = random.nextIntWithinInterval(0, size-1);
+		final int candidate = frontier[i];
+		frontier[i] = frontier[--size];
+		return candidate;
+	}
+	/**
+	 * Adds the wallboards of the given cell that can be torn down to the frontier.
+	 * @param x the x coordinate of interest
+	 * @param y the y coordinate of interest
+	 */
+	private void addCandidates(int x, int y) {
+		final int index = floorplan.getIndex(x, y) << 2;
+		for (CardinalDirection cd : DIRECTIONS) {
+			wallboard.setLocationDirection(x, y, cd);
+			if (floorplan.canTearDown(wallboard))
+				frontier[size++] = index | cd.ordinal();
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package generation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class builds a maze by recursive division, running on the fork-join pool.
+ *
+ * The algorithm starts from a maze without any wallboards inside.
+ * It divides the area with a line of wallboards across it that has a single
+ * opening at a random position, and then divides each of the two parts in the
+ * same way, until a part is only one cell wide or high. The line goes across
+ * the longer side of an area, for a square area its direction is random.
+ * Each opening connects two parts that are trees by themselves,
+ * so the result is a perfect maze.
+ *
+ * The two parts of a division do not share any cells, so they are
+ * divided in parallel. Each area has its own stream of random numbers,
+ * which it splits off for its two parts in a fixed order. The random choices
+ * for an area hence depend on the seed and on its position in the recursion only,
+ * and the maze for a given seed is the same no matter how many threads
+ * take part or which thread divides which area.
+ *
+ * Tasks do not write to the floorplan since Floorplan is not safe for
+ * concurrent use. They record openings with one byte per cell, a task only
+ * writes bytes of cells inside its own area. After all divisions are done,
+ * the builder deletes the recorded wallboards from the floorplan, where
+ * all wallboards are up after initialization. This gives the same floorplan
+ * as adding the lines of wallboards to an empty area.
+ *
+ * Rooms are not supported as lines of wallboards would cut through them,
+ * this builder always produces a perfect maze.
+ */
+public class MazeBuilderRecursiveDivision extends MazeBuilder implements Runnable {
+	/**
+	 * Areas with fewer cells are divided by the task that holds them
+	 * without forking new tasks.
+	 */
+	static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+	// bits in openings for a cell
+	private static final byte OPEN_EAST = 1; // no wallboard towards the cell on the east
+	private static final byte OPEN_SOUTH = 2; // no wallboard towards the cell on the south
+
+	private final ForkJoinPool pool ;
+	private byte[] openings ; // openings of cell (x,y) at index y*width+x
+
+	/**
+	 * Constructor for a builder that runs on the common fork-join pool.
+	 */
+	public MazeBuilderRecursiveDivision() {
+		this(ForkJoinPool.commonPool());
+	}
+	/**
+	 * Constructor
+	 * @param pool runs the division of areas, must not be null
+	 */
+	public MazeBuilderRecursiveDivision(ForkJoinPool pool) {
+		super();
+		this.pool = pool;
+		System.out.println("MazeBuilderRecursiveDivision uses recursive division to generate maze.");
+	}
+
+	/**
+	 * Does not place any rooms as dividing lines of wallboards would cut through them.
+	 * @return 0 for no rooms
+	 */
+	@Override
+	protected int generateRooms() {
+		return 0;
+	}
+	/**
+	 * This method generates pathways into the maze by recursive division.
+	 * The 64 bit seed for the random streams of all areas is built from two numbers
+	 * of the random number generator of the builder.
+	 */
+	@Override
+	protected void generatePathways() {
+		openings = new byte[width*height];
+		// a full 64 bit seed such that the streams of areas do not start from a reduced set of seeds
+		final long seed = ((long)random.nextInt() << 32) | (random.nextInt() & 0xFFFFFFFFL);
+		pool.invoke(new DivisionTask(0, 0, width, height, new SplittableRandom(seed)));
+		final Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.East);
+		for (int y = 0, index = 0; y < height; y++) {
+			for (int x = 0; x < width; x++, index++) {
+				if (0 != (openings[index] & OPEN_EAST)) {
+					wallboard.setLocationDirection(x, y, CardinalDirection.East);
+					floorplan.deleteWallboard(wallboard);
+				}
+				if (0 != (openings[index] & OPEN_SOUTH)) {
+					wallboard.setLocationDirection(x, y, CardinalDirection.South);
+					floorplan.deleteWallboard(wallboard);
+				}
+				floorplan.setCellAsVisited(x, y);
+			}
+		}
+		openings = null;
+	}
+	/**
+	 * Divides an area and then its parts, either by forking tasks
+	 * for the parts or, for small areas, by recursion in the current task.
+	 * Cells (x,y) of the area satisfy {@code ax <= x < ax+aw, ay <= y < ay+ah}.
+	 */
+	private final class DivisionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int ax;
+		private final int ay;
+		private final int aw;
+		private final int ah;
+		private final SplittableRandom rnd;
+
+		DivisionTask(int ax, int ay, int aw, int ah, SplittableRandom rnd) {
+			this.ax = ax;
+			this.ay = ay;
+			this.aw = aw;
+			this.ah = ah;
+			this.rnd = rnd;
+		}
+		@Override
+		protected void compute() {
+			divide(ax, ay, aw, ah, rnd, aw*ah < SEQUENTIAL_THRESHOLD);
+		}
+		/**
+		 * Divides the given area and its parts.
+		 * @param sequential is true to divide parts in the current task
+		 */
+		private void divide(int ax, int ay, int aw, int ah, SplittableRandom rnd, boolean sequential) {
+			if (1 == aw || 1 == ah) {
+				openCorridor(ax, ay, aw, ah);
+				return;
+			}
+			final boolean horizontal = (aw < ah) || (aw == ah && rnd.nextBoolean());
+			int bx = ax, by = ay, bw = aw, bh = ah; // second part
+			if (horizontal) {
+				// wallboards on the south side of row line, parts are rows above and below
+				final int line = ay + rnd.nextInt(ah-1);
+				final int gap = ax + rnd.nextInt(aw);
+				openings[line*width + gap] |= OPEN_SOUTH;
+				ah = line - ay + 1;
+				by = line + 1;
+				bh -= ah;
+			}
+			else {
+				// wallboards on the east side of column line, parts are columns left and right
+				final int line = ax + rnd.nextInt(aw-1);
+				final int gap = ay + rnd.nextInt(ah);
+				openings[gap*width + line] |= OPEN_EAST;
+				aw = line - ax + 1;
+				bx = line + 1;
+				bw -= aw;
+			}
+			// split in a fixed order such that parts get the same streams in either case
+			final SplittableRandom first = rnd.split();
+			final SplittableRandom second = rnd.split();
+			if (sequential) {
+				divide(ax, ay, aw, ah, first, true);
+				divide(bx, by, bw, bh, second, true);
+			}
+			else
+				invokeAll(new DivisionTask(ax, ay, aw, ah, first), new DivisionTask(bx, by, bw, bh, second));
+		}
+		/**
+		 * Opens all wallboards inside an area that is one cell wide or high.
+		 */
+		private void openCorridor(int ax, int ay, int aw, int ah) {
+			for (int y = ay; y < ay+ah; y++) {
+				for (int x = ax; x < ax+aw; x++) {
+					if (x < ax+aw-1)
+						openings[y*width + x] |= OPEN_EAST;
+					if (y < ay+ah-1)
+						openings[y*width + x] |= OPEN_SOUTH;
+				}
+			}
+		}
+	}
+}
@@ -3,6 +3,9 @@
  */
 package generation;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
 import gui.Constants;
 
 /**
@@ -54,6 +57,17 @@ public class MazeContainer implements Maze {
 	
 	// to be fully initialized, we need all other fields being set consistently
 	private boolean fullyInitialized;
+	
+	private volatile DistanceOracle oracle ; // answers distance queries between arbitrary positions
+	// built on first use, discarded if the floorplan or the dimensions change
+	private int oracleMemoryBudget = DistanceOracle.DEFAULT_MEMORY_BUDGET ; // bytes for the landmark table
+	private volatile MazeMetrics metrics ; // statistics on the quality of the maze
+	// computed on first use, discarded if the floorplan, distances, dimensions or starting position change
+	
+	private volatile NextHops nextHops ; // directions towards the exit for each position
+	// computed when the maze is delivered or on first use, discarded if the floorplan,
+	// the distances or the dimensions change, and recomputed if the distances are repaired
+	private static final CardinalDirection[] DIRECTIONS = CardinalDirection.values(); // avoids a copy per call
 
 	
 	/**
@@ -89,6 +103,8 @@ public class MazeContainer implements Maze {
 		setStartingPosition(startingPositionX, startingPositionY);
 		assert(isOperational()) : 
 			"constructor for operational maze received faulty input!";
+		// the maze is delivered, prepare the directions towards the exit
+		computeNextHops();
 	}
 	/**
 	 * @param width is the width of the maze, must conform with Constants.SKILL_X values
@@ -97,6 +113,9 @@ public class MazeContainer implements Maze {
 		assert(Constants.SKILL_X[0] <= width && 
 				width <= Constants.SKILL_X[Constants.SKILL_X.length-1]);
 		this.width = width;
+		oracle = null;
+		metrics = null;
+		nextHops = null;
 	}
 	/**
 	 * @return the width of the maze, such that for any (x,y), {@code 0 <= x < width}
@@ -114,6 +133,9 @@ public class MazeContainer implements Maze {
 		assert(Constants.SKILL_Y[0] <= height && 
 				height <= Constants.SKILL_Y[Constants.SKILL_Y.length-1]);	
 		this.height = height;
+		oracle = null;
+		metrics = null;
+		nextHops = null;
 	}
 	/**
 	 * @return the height of the maze, such that for any (x,y), {@code 0 <= y < height}
@@ -140,11 +162,19 @@ public class MazeContainer implements Maze {
 	 */
 	public void setFloorplan(Floorplan floorplan) {
 		this.floorplan = floorplan;
+		oracle = null;
+		metrics = null;
+		nextHops = null;
 	}
 
 	/**
 	 * Gives the distance. 
 	 * Warning, returns direct access to internal field.
+	 * Changes through methods of Distance, such as
+	 * {@link Distance#repairAfterWallboardDeleted(Floorplan, Wallboard)},
+	 * are noticed by the next call of {@link #getNextHopDirection(int, int)}.
+	 * Changes to the array of {@link Distance#getAllDistanceValues()}
+	 * are not, call {@link #setMazedists(Distance)} after such changes.
 	 * @return the mazedists
 	 */
 	public Distance getMazedists() {
@@ -159,6 +189,8 @@ public class MazeContainer implements Maze {
 	 */
 	public void setMazedists(Distance mazedists) {
 		this.mazedists = mazedists;
+		nextHops = null;
+		metrics = null;
 	}
 
 	/**
@@ -199,6 +231,78 @@ public class MazeContainer implements Maze {
 			"accessing content before object is fully initialized!";
 		return mazedists.getDistanceValue(x, y) ;
 	}
+	/**
+	 * Gives the number of steps on a shortest path between two positions.
+	 * The first call builds a {@link DistanceOracle} for this maze.
+	 * @param ax is on the horizontal axis, {@code 0 <= ax < width}
+	 * @param ay is on the vertical axis, {@code 0 <= ay < height}
+	 * @param bx is on the horizontal axis, {@code 0 <= bx < width}
+	 * @param by is on the vertical axis, {@code 0 <= by < height}
+	 * @return number of steps from (ax,ay) to (bx,by), Distance.INFINITY if there is no path
+	 */
+	public int getDistanceBetween(int ax, int ay, int bx, int by) {
+		assert isValidPosition(ax, ay) && isValidPosition(bx, by) : "Invalid position";
+		return getDistanceOracle().getDistance(ax, ay, bx, by);
+	}
+	/**
+	 * Finds a shortest path between two positions with a bidirectional
+	 * A* search over the floorplan. 
+	 * @param fromX is on the horizontal axis, {@code 0 <= fromX < width}
+	 * @param fromY is on the vertical axis, {@code 0 <= fromY < height}
+	 * @param toX is on the horizontal axis, {@code 0 <= toX < width}
+	 * @param toY is on the vertical axis, {@code 0 <= toY < height}
+	 * @return ordinals of the CardinalDirection for each step, an empty array 
+	 * if both positions are the same, null if there is no path
+	 */
+	public byte[] findPath(int fromX, int fromY, int toX, int toY) {
+		assert(isOperational()) : 
+			"accessing content before object is fully initialized!";
+		assert isValidPosition(fromX, fromY) && isValidPosition(toX, toY) : "Invalid position";
+		return PathFinder.findPath(floorplan, fromX, fromY, toX, toY);
+	}
+	/**
+	 * Gives the oracle for distances between arbitrary positions.
+	 * The oracle is built on first use with the current memory budget.
+	 * @return the oracle for this maze
+	 */
+	public DistanceOracle getDistanceOracle() {
+		assert(isOperational()) : 
+			"accessing content before object is fully initialized!";
+		DistanceOracle result = oracle;
+		if (null == result) {
+			// concurrent first calls may build the oracle twice, which is harmless
+			result = new DistanceOracle(floorplan, oracleMemoryBudget);
+			oracle = result;
+		}
+		return result;
+	}
+	/**
+	 * Gives statistics on the quality of this maze, such as the number 
+	 * of dead ends, corridor lengths or the length of the solution.
+	 * Statistics are computed on first use, in parallel for large mazes.
+	 * @return the statistics for this maze
+	 */
+	public MazeMetrics getMetrics() {
+		assert(isOperational()) : 
+			"accessing content before object is fully initialized!";
+		MazeMetrics result = metrics;
+		if (null == result) {
+			Distance.Traversal traversal = (width*height < MazeMetrics.PARALLEL_THRESHOLD) ? 
+					Distance.Traversal.Sequential : Distance.Traversal.Parallel;
+			result = MazeMetrics.analyze(floorplan, mazedists, start[0], start[1], traversal);
+			metrics = result;
+		}
+		return result;
+	}
+	/**
+	 * Sets the number of bytes the distance oracle may use for its landmark table.
+	 * An existing oracle is discarded and rebuilt on next use.
+	 * @param bytes is the memory budget, at least one landmark is used regardless
+	 */
+	public void setDistanceOracleMemoryBudget(int bytes) {
+		oracleMemoryBudget = bytes;
+		oracle = null;
+	}
 	/**
 	 * Tells if at position (x,y) and looking into given direction faces a wallboard.
 	 * @param x is on the horizontal axis, {@code 0 <= x < width}
@@ -220,32 +324,154 @@ public class MazeContainer implements Maze {
 	 */
 	public int[] getNeighborCloserToExit(int x, int y) {
 		assert isValidPosition(x,y) : "Invalid position";
-		// corner case, (x,y) is exit position
-		if (floorplan.isExitPosition(x, y))
+		CardinalDirection cd = getNextHopDirection(x, y);
+		if (null == cd) {
+			// expectation: only the exit position has no neighbor that is closer
+			assert floorplan.isExitPosition(x, y) : 
+				"cannot identify direction towards solution: stuck at: " + x + ", "+ y ;
+			return null;
+		}
+		int[] dir = cd.getDirection();
+		dir[0] += x;
+		dir[1] += y;
+		return dir;
+	}
+	/**
+	 * Gives the direction towards a neighbor that is closer to the exit.
+	 * If several neighbors qualify, the first one in the order 
+	 * of {@link CardinalDirection#values()} is chosen.
+	 * The method reads a precomputed table and does not allocate memory.
+	 * @param x is on the horizontal axis, {@code 0 <= x < width}
+	 * @param y is on the vertical axis, {@code 0 <= y < height}
+	 * @return direction to the neighbor, null if (x,y) is the exit position 
+	 * or if there is no path to the exit
+	 */
+	public CardinalDirection getNextHopDirection(int x, int y) {
+		assert isValidPosition(x,y) : "Invalid position";
+		NextHops result = nextHops;
+		if (null == result || result.modifications != mazedists.getModificationCount()) {
+			// concurrent first calls may compute the table twice, which is harmless
+			result = computeNextHops();
+		}
+		final int pos = x*height + y;
+		if ((result.terminals[pos >>> 6] & (1L << (pos & 63))) != 0)
 			return null;
-		// find best candidate
-		int dnext = getDistanceToExit(x, y) ;
-		int[] result = new int[2] ;
-		int[] dir;
-		for (CardinalDirection cd: CardinalDirection.values()) {
-			if (hasWall(x, y, cd)) 
-				continue; // there is a wallboard in the way
-			// no wallboard, let's check the distance
-			dir = cd.getDirection();
-			int dn = getDistanceToExit(x+dir[0], y+dir[1]);
-			if (dn < dnext) {
-				// update neighbor position with min distance
-				result[0] = x+dir[0] ;
-				result[1] = y+dir[1] ;
-				dnext = dn ;
-			}	
+		return DIRECTIONS[(int)(result.hops[pos >>> 5] >>> ((pos & 31) << 1)) & 3];
+	}
+	/**
+	 * Provides the positions on the path from (x,y) to the exit,
+	 * starting with (x,y) itself and ending with the exit position.
+	 * For a position that can not reach the exit, the iteration 
+	 * ends with the given position.
+	 * Warning: the iterator returns the same array with updated
+	 * coordinates on each call of next to avoid memory allocation,
+	 * callers need to copy values they want to keep.
+	 * @param x is on the horizontal axis, {@code 0 <= x < width}
+	 * @param y is on the vertical axis, {@code 0 <= y < height}
+	 * @return iterator over (x,y) coordinates on the solution path
+	 */
+	public Iterator<int[]> getSolutionPath(int x, int y) {
+		assert isValidPosition(x,y) : "Invalid position";
+		return new Iterator<int[]>() {
+			private final int[] cursor = new int[2] ; // current position as delivered by next
+			private CardinalDirection nextStep = null ; // direction to continue from cursor
+			private boolean started = false ; // tells if next was called before
+			
+			@Override
+			public boolean hasNext() {
+				return !started || null != nextStep;
+			}
+			@Override
+			public int[] next() {
+				if (!started) {
+					cursor[0] = x;
+					cursor[1] = y;
+					started = true;
+				}
+				else if (null != nextStep) {
+					switch (nextStep) {
+					case North : cursor[1]--; break;
+					case East  : cursor[0]++; break;
+					case South : cursor[1]++; break;
+					case West  : cursor[0]--; break;
+					}
+				}
+				else
+					throw new NoSuchElementException();
+				nextStep = getNextHopDirection(cursor[0], cursor[1]);
+				return cursor;
+			}
+		};
+	}
+	/**
+	 * Directions towards the exit for all positions. Both arrays are
+	 * published together through a single volatile field, so a thread
+	 * that sees the table sees both of them. The table is stamped with
+	 * the modification count of the distances it was computed from.
+	 */
+	private static final class NextHops {
+		// holds the ordinal of the CardinalDirection for position x*height+y, 2 bits per position, 32 positions per long
+		private final long[] hops ;
+		// 1 bit per position, set if a position has no neighbor closer to the exit
+		// that is the exit itself and positions that can not reach the exit
+		private final long[] terminals ;
+		// modification count of mazedists when the table was computed
+		private final int modifications ;
+
+		NextHops(long[] hops, long[] terminals, int modifications) {
+			this.hops = hops;
+			this.terminals = terminals;
+			this.modifications = modifications;
+		}
+	}
+	/**
+	 * Computes the direction towards the exit for all positions
+	 * and stores it with 2 bits per position.
+	 * Directions are chosen in the same way as by a search
+	 * for the neighbor with the smallest distance value,
+	 * such that ties go to the first direction in CardinalDirection.values().
+	 * @return the table, which is also stored in the nextHops field
+	 */
+	private NextHops computeNextHops() {
+		final int modifications = mazedists.getModificationCount();
+		final int n = width*height;
+		final long[] hops = new long[(n + 31) >>> 5];
+		final long[] ends = new long[(n + 63) >>> 6];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final int pos = x*height + y;
+				int best = -1;
+				int dnext = mazedists.getDistanceValue(x, y);
+				if (!floorplan.isExitPosition(x, y)) {
+					for (CardinalDirection cd : DIRECTIONS) {
+						if (floorplan.hasWall(x, y, cd))
+							continue;
+						int nx = x;
+						int ny = y;
+						switch (cd) {
+						case North : ny--; break;
+						case East  : nx++; break;
+						case South : ny++; break;
+						case West  : nx--; break;
+						}
+						if (!isValidPosition(nx, ny))
+							continue;
+						int dn = mazedists.getDistanceValue(nx, ny);
+						if (dn < dnext) {
+							best = cd.ordinal();
+							dnext = dn;
+						}
+					}
+				}
+				if (best < 0)
+					ends[pos >>> 6] |= 1L << (pos & 63);
+				else
+					hops[pos >>> 5] |= ((long)best) << ((pos & 31) << 1);
+			}
 		}
-		// expectation: we found a neighbor that is closer
-		assert(getDistanceToExit(x, y) > dnext) : 
-			"cannot identify direction towards solution: stuck at: " + x + ", "+ y ;
-		// since assert statements need not be executed, check it 
-		// to avoid giving back wrong result
-		return (getDistanceToExit(x, y) > dnext) ? result : null;
+		final NextHops result = new NextHops(hops, ends, modifications);
+		nextHops = result;
+		return result;
 	}
 
 	/**
@@ -266,6 +492,7 @@ public class MazeContainer implements Maze {
 		assert (null != startingPosition && start.length == 2) : "MazeContainer.start illegal parameter value";
 		assert isValidPosition(start[0], start[1]) : "Invalid starting position";
 		this.start = startingPosition;
+		metrics = null;
 	}
 	/** 
 	 * Sets the starting position
@@ -278,6 +505,7 @@ public class MazeContainer implements Maze {
 			start = new int[2] ;
 		start[0] = x ;
 		start[1] = y ;
+		metrics = null;
 	}
 	
 	/**
@@ -17,6 +17,12 @@ public class MazeFactory implements Factory {
 	private MazeBuilder builder;
 	// 
 	private Thread buildThread; // computations are performed in own separated thread with this.run()
+	// how builders compute distances, parallel helps for very large mazes only
+	private Distance.Traversal traversal = Distance.Traversal.Sequential;
+	// if builders deliver distances in compact storage, saves memory for mazes that are kept around
+	private boolean compactDistances = false;
+	// how builders create floorplans, e.g., off-heap for very large mazes
+	private MazeBuilder.FloorplanProvider floorplanProvider = Floorplan::new;
 	
 	//////////////////////// Constructor ////////////////////////////////////////
 	/**
@@ -26,6 +32,28 @@ public class MazeFactory implements Factory {
 		// nothing to do
 	}
 	
+	/**
+	 * Selects how builders compute distances to the exit for subsequent orders.
+	 * @param traversal is either sequential (default) or parallel, must not be null
+	 */
+	public void setDistanceTraversal(Distance.Traversal traversal) {
+		this.traversal = traversal;
+	}
+	/**
+	 * Selects if builders deliver distances in compact storage for subsequent orders.
+	 * @param compactDistances is true for compact storage, false (default) otherwise
+	 */
+	public void setCompactDistances(boolean compactDistances) {
+		this.compactDistances = compactDistances;
+	}
+	/**
+	 * Selects how builders create floorplans for subsequent orders.
+	 * @param floorplanProvider creates floorplans, default is {@code Floorplan::new}, must not be null
+	 */
+	public void setFloorplanProvider(MazeBuilder.FloorplanProvider floorplanProvider) {
+		this.floorplanProvider = floorplanProvider;
+	}
+	
 	//////////////////////// Factory interface //////////////////////////////////
 	@Override
 	public boolean order(Order order) {
@@ -51,6 +79,10 @@ public class MazeFactory implements Factory {
 			builder = new MazeBuilderKruskal();
 			buildOrder();
 			break;
+		case Eller:
+			builder = new MazeBuilderEller();
+			buildOrder();
+			break;
 		default:
 			System.out.println("MazeFactory.order: missing implementation for requested algorithm: " + order.getBuilder());
 			return false;
@@ -94,6 +126,9 @@ public class MazeFactory implements Factory {
 		if (null == builder)
 			return;
 		System.out.println("MazeFactory.buildOrder: started") ;
+		builder.setDistanceTraversal(traversal);
+		builder.setCompactDistances(compactDistances);
+		builder.setFloorplanProvider(floorplanProvider);
 		builder.buildOrder(currentOrder);
 		buildThread = new Thread(builder);
 		buildThread.start();
@@ -0,0 +1,324 @@
+package generation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class holds statistics that describe the quality of a maze
+ * and computes them with {@link #analyze(Floorplan, Distance, int, int, Distance.Traversal)}.
+ *
+ * Local statistics are collected in a single pass over the floorplan
+ * that reads each cell once, row by row:
+ * <ul>
+ * <li>dead ends are cells with a single opening to a neighbor,</li>
+ * <li>junctions are cells with three or four openings,</li>
+ * <li>the branching factor is the average number of openings of a cell
+ * that has at least one opening,</li>
+ * <li>the corridor histogram counts straight corridors by their length,
+ * a straight corridor is a maximal horizontal or vertical sequence of at least
+ * two cells where each cell has an opening to the next one,</li>
+ * <li>room coverage is the fraction of cells inside rooms.</li>
+ * </ul>
+ * The exit opening to the outside does not count as an opening.
+ *
+ * In parallel mode, the rows are split into bands that are analyzed
+ * independently. Horizontal corridors never leave a row, vertical
+ * corridors that cross the boundary between bands are stitched together
+ * from the open ends that each band reports for each column.
+ *
+ * The solution length is the number of steps from the starting position
+ * to the exit. The diameter is obtained with two breadth-first searches:
+ * the position farthest from the center, then the position farthest from that one.
+ * It is exact for perfect mazes and a lower bound for mazes with rooms.
+ */
+public class MazeMetrics {
+	/**
+	 * Mazes with at least this many cells are worth a parallel analysis.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+	/**
+	 * Minimum number of rows per band in parallel mode.
+	 */
+	static final int MIN_BAND_HEIGHT = 16;
+
+	private int deadEnds ;
+	private int junctions ;
+	private long openings ; // sum of openings over all cells
+	private int connectedCells ; // cells with at least one opening
+	private int roomCells ;
+	private int cells ;
+	private int[] corridors ; // corridors[k] is the number of straight corridors with k cells
+	private int solutionLength ;
+	private int diameter ;
+
+	private MazeMetrics() {
+		// instances are created by analyze
+	}
+	/**
+	 * Computes all statistics for the given maze.
+	 * @param floorplan with information on wallboards for a maze, can not be null, read only
+	 * @param dists distance values towards the exit, can not be null, read only
+	 * @param startX is the x coordinate of the starting position
+	 * @param startY is the y coordinate of the starting position
+	 * @param traversal selects a sequential or a parallel pass over the floorplan
+	 * @return the statistics for the maze
+	 */
+	public static MazeMetrics analyze(Floorplan floorplan, Distance dists, int startX, int startY,
+			Distance.Traversal traversal) {
+		final int width = floorplan.getWidth();
+		final int height = floorplan.getHeight();
+		final MazeMetrics result = new MazeMetrics();
+		result.cells = width*height;
+		result.corridors = new int[Math.max(width, height) + 1];
+		// split rows into bands, a single band for a sequential pass
+		int bands = 1;
+		if (Distance.Traversal.Parallel == traversal) {
+			bands = Math.min(4*ForkJoinPool.getCommonPoolParallelism(), height / MIN_BAND_HEIGHT);
+			bands = Math.max(1, bands);
+		}
+		final Band[] results = new Band[bands];
+		if (1 == bands) {
+			results[0] = new Band(floorplan, 0, height).call();
+		}
+		else {
+			List<Callable<Band>> tasks = new ArrayList<Callable<Band>>();
+			for (int b = 0; b < bands; b++) {
+				tasks.add(new Band(floorplan, b*height/bands, (b+1)*height/bands));
+			}
+			List<Future<Band>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+			try {
+				for (int b = 0; b < bands; b++) {
+					results[b] = futures.get(b).get();
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException("MazeMetrics: analysis of floorplan failed", e);
+			}
+		}
+		result.merge(results, width);
+		// distance based statistics
+		final int startDistance = dists.getDistanceValue(startX, startY);
+		result.solutionLength = (Distance.INFINITY == startDistance) ? Distance.INFINITY : startDistance - 1;
+		result.diameter = computeDiameter(floorplan, width, height);
+		return result;
+	}
+	/**
+	 * Adds up the counts of all bands and stitches vertical corridors
+	 * across band boundaries.
+	 */
+	private void merge(Band[] bands, int width) {
+		// length of a vertical corridor that reaches the bottom of the previous band
+		final int[] carry = new int[width];
+		for (Band band : bands) {
+			deadEnds += band.deadEnds;
+			junctions += band.junctions;
+			openings += band.openings;
+			connectedCells += band.connectedCells;
+			roomCells += band.roomCells;
+			for (int k = 0; k < corridors.length; k++)
+				corridors[k] += band.corridors[k];
+			for (int x = 0; x < width; x++) {
+				if (band.full[x]) {
+					carry[x] += band.rows;
+				}
+				else {
+					countCorridor(corridors, carry[x] + band.prefix[x]);
+					carry[x] = band.suffix[x];
+				}
+			}
+		}
+		// the bottom border is a wall, so nothing continues after the last band
+		for (int x = 0; x < width; x++)
+			countCorridor(corridors, carry[x]);
+	}
+	/**
+	 * Counts a straight corridor.
+	 * @param corridors histogram of corridor lengths
+	 * @param cells the number of cells in the corridor, 0 or 1 if there is none
+	 */
+	static void countCorridor(int[] corridors, int cells) {
+		if (cells > 1)
+			corridors[cells]++;
+	}
+	/**
+	 * Computes the length of a longest shortest path with two breadth-first searches.
+	 */
+	private static int computeDiameter(Floorplan floorplan, int width, int height) {
+		Distance d = new Distance(width, height);
+		d.computeDistanceField(floorplan, new int[] {width/2}, new int[] {height/2}, false);
+		int[] farthest = getFarthestReachablePosition(d, width, height);
+		d.computeDistanceField(floorplan, new int[] {farthest[0]}, new int[] {farthest[1]}, false);
+		farthest = getFarthestReachablePosition(d, width, height);
+		return d.getDistanceValue(farthest[0], farthest[1]) - 1;
+	}
+	private static int[] getFarthestReachablePosition(Distance d, int width, int height) {
+		int[] result = new int[2];
+		int max = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				int value = d.getDistanceValue(x, y);
+				if (value != Distance.INFINITY && value > max) {
+					max = value;
+					result[0] = x;
+					result[1] = y;
+				}
+			}
+		}
+		return result;
+	}
+	/**
+	 * @return the number of cells with a single opening
+	 */
+	public int getDeadEnds() {
+		return deadEnds;
+	}
+	/**
+	 * @return the number of cells with three or four openings
+	 */
+	public int getJunctions() {
+		return junctions;
+	}
+	/**
+	 * @return the average number of openings for cells with at least one opening,
+	 * 0 if there are no such cells
+	 */
+	public double getBranchingFactor() {
+		return (0 == connectedCells) ? 0 : (double)openings / connectedCells;
+	}
+	/**
+	 * Gives the number of straight corridors for each length.
+	 * @return array where index k holds the number of corridors with k cells,
+	 * entries 0 and 1 are always 0
+	 */
+	public int[] getCorridorLengthHistogram() {
+		return corridors.clone();
+	}
+	/**
+	 * @return the length of the longest straight corridor in cells, 0 if there is none
+	 */
+	public int getLongestCorridor() {
+		for (int k = corridors.length-1; k > 1; k--) {
+			if (corridors[k] > 0)
+				return k;
+		}
+		return 0;
+	}
+	/**
+	 * @return the fraction of cells that are inside rooms, between 0 and 1
+	 */
+	public double getRoomCoverage() {
+		return (double)roomCells / cells;
+	}
+	/**
+	 * @return the number of steps from the starting position to the exit,
+	 * Distance.INFINITY if there is no path
+	 */
+	public int getSolutionLength() {
+		return solutionLength;
+	}
+	/**
+	 * @return the number of steps on a longest shortest path between two positions
+	 */
+	public int getDiameter() {
+		return diameter;
+	}
+	@Override
+	public String toString() {
+		return "MazeMetrics[deadEnds=" + deadEnds + ", junctions=" + junctions
+				+ ", branchingFactor=" + String.format("%.3f", getBranchingFactor())
+				+ ", longestCorridor=" + getLongestCorridor()
+				+ ", roomCoverage=" + String.format("%.3f", getRoomCoverage())
+				+ ", solutionLength=" + solutionLength + ", diameter=" + diameter + "]";
+	}
+	/**
+	 * Counts for a band of consecutive rows [fromY,toY).
+	 * Vertical corridors that touch the upper or lower end of the band
+	 * are reported as open ends per column, all others are counted directly.
+	 */
+	private static final class Band implements Callable<Band> {
+		private final Floorplan floorplan ;
+		private final int fromY ;
+		private final int toY ;
+		final int rows ; // number of rows in band
+		int deadEnds ;
+		int junctions ;
+		long openings ;
+		int connectedCells ;
+		int roomCells ;
+		final int[] corridors ;
+		// per column: cells of the vertical corridor that starts in the first row,
+		// cells of the vertical corridor that reaches the last row and has an opening to the next band,
+		// and if the corridor covers the whole band and has an opening to the next band
+		final int[] prefix ;
+		final int[] suffix ;
+		final boolean[] full ;
+
+		Band(Floorplan floorplan, int fromY, int toY) {
+			this.floorplan = floorplan;
+			this.fromY = fromY;
+			this.toY = toY;
+			this.rows = toY - fromY;
+			final int width = floorplan.getWidth();
+			corridors = new int[Math.max(width, floorplan.getHeight()) + 1];
+			prefix = new int[width];
+			suffix = new int[width];
+			full = new boolean[width];
+		}
+		@Override
+		public Band call() {
+			final int width = floorplan.getWidth();
+			final int height = floorplan.getHeight();
+			// cells of the vertical corridor that reaches the current row, per column
+			final int[] vertical = new int[width];
+			final boolean[] started = new boolean[width]; // true once a corridor ended in this band
+			for (int y = fromY; y < toY; y++) {
+				int horizontal = 0; // cells of the horizontal corridor that reaches (x,y)
+				final int rowStart = floorplan.getIndex(0, y); // cells of a row are next to each other
+				for (int x = 0; x < width; x++) {
+					final int value = floorplan.getValueOfCell(rowStart + x);
+					// openings to neighbors inside the maze
+					final boolean north = (value & Floorplan.CW_TOP) == 0 && y > 0;
+					final boolean south = (value & Floorplan.CW_BOT) == 0 && y < height-1;
+					final boolean west = (value & Floorplan.CW_LEFT) == 0 && x > 0;
+					final boolean east = (value & Floorplan.CW_RIGHT) == 0 && x < width-1;
+					final int degree = (north ? 1 : 0) + (south ? 1 : 0) + (west ? 1 : 0) + (east ? 1 : 0);
+					if (degree > 0) {
+						connectedCells++;
+						openings += degree;
+						if (1 == degree)
+							deadEnds++;
+						else if (degree > 2)
+							junctions++;
+					}
+					if ((value & Floorplan.CW_IN_ROOM) != 0)
+						roomCells++;
+					// horizontal corridors stay within a row
+					horizontal++;
+					if (!east) {
+						countCorridor(corridors, horizontal);
+						horizontal = 0;
+					}
+					// vertical corridors may continue in the next band
+					vertical[x]++;
+					if (!south) {
+						if (started[x])
+							countCorridor(corridors, vertical[x]);
+						else
+							prefix[x] = vertical[x]; // corridor may continue from the previous band
+						started[x] = true;
+						vertical[x] = 0;
+					}
+				}
+			}
+			for (int x = 0; x < width; x++) {
+				// a corridor that reaches the last row continues in the next band
+				full[x] = !started[x];
+				suffix[x] = started[x] ? vertical[x] : 0;
+			}
+			return this;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package generation;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * This class is a floorplan that keeps its cells outside of the Java heap
+ * in direct byte buffers, such that very large mazes do not put
+ * pressure on the garbage collector. A maze with 10,000x10,000 cells
+ * takes 400 MB of native memory and only a few objects on the heap.
+ *
+ * Cells are stored with the same encoding and the same row by row
+ * order as in the Floorplan class. A single direct buffer can not hold
+ * more than 2 GB, so cells are split into segments of
+ * {@code SEGMENT_CELLS} cells each.
+ * Note that the JVM limits direct buffers to the maximum heap size by default,
+ * so a small heap needs an explicit limit, e.g., {@code -XX:MaxDirectMemorySize=1g}.
+ *
+ * Native memory is released with {@link #close()}. Once closed,
+ * any access to a cell throws an IllegalStateException.
+ * If a floorplan is not closed, its memory is released after the floorplan
+ * has become unreachable and the garbage collector has noticed it,
+ * which may take a long time as the heap footprint is small.
+ *
+ * The class is a drop-in replacement for a Floorplan, e.g., for the
+ * MazeBuilder with {@link MazeBuilder#setFloorplanProvider(MazeBuilder.FloorplanProvider)}.
+ * It is not safe for concurrent updates, same as the Floorplan class.
+ */
+public class OffHeapFloorplan extends Floorplan implements AutoCloseable {
+	/**
+	 * Number of cells in a segment is 2^SEGMENT_SHIFT.
+	 */
+	static final int SEGMENT_SHIFT = 26;
+	/**
+	 * Number of cells in a segment, 256 MB of native memory.
+	 */
+	public static final int SEGMENT_CELLS = 1 << SEGMENT_SHIFT;
+	private static final int SEGMENT_MASK = SEGMENT_CELLS - 1;
+
+	// sun.misc.Unsafe.invokeCleaner releases the memory of a direct buffer right away,
+	// null if not available, then memory is released by the garbage collector
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			final Class<?> c = Class.forName("sun.misc.Unsafe");
+			final Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafe = f.get(null);
+			invokeCleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			unsafe = null;
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private ByteBuffer[] buffers ; // native memory, null once closed
+	private IntBuffer[] segments ; // int views on buffers, null once closed
+
+	/**
+	 * Constructor, allocates native memory for all cells.
+	 * All cells are 0 as for a new Floorplan.
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 */
+	public OffHeapFloorplan(int w, int h) {
+		this(w, h, allocate(w, h));
+	}
+	/**
+	 * Constructor for subclasses that provide the native memory,
+	 * e.g., a file mapped into memory.
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 * @param buffers direct buffers with the cells of consecutive segments,
+	 * each holds {@code SEGMENT_CELLS} cells but for the last one, byte order is already set
+	 */
+	protected OffHeapFloorplan(int w, int h, ByteBuffer[] buffers) {
+		super(w, h, false);
+		this.buffers = buffers;
+		segments = new IntBuffer[buffers.length];
+		for (int s = 0; s < buffers.length; s++) {
+			segments[s] = buffers[s].asIntBuffer();
+		}
+	}
+	/**
+	 * Constructor that copies the content of the given floorplan.
+	 * @param other provides the cells to copy, can not be null
+	 */
+	public OffHeapFloorplan(Floorplan other) {
+		this(other.getWidth(), other.getHeight());
+		copyCellsFrom(other);
+	}
+	/**
+	 * Allocates zeroed native memory for w*h cells.
+	 */
+	private static ByteBuffer[] allocate(int w, int h) {
+		final long n = (long)w*h;
+		final ByteBuffer[] result = new ByteBuffer[getNumberOfSegments(n)];
+		for (int s = 0; s < result.length; s++) {
+			// direct buffers are zeroed on allocation
+			result[s] = ByteBuffer.allocateDirect(4*getSegmentCells(n, s)).order(ByteOrder.nativeOrder());
+		}
+		return result;
+	}
+	/**
+	 * @param n number of cells
+	 * @return number of segments needed for n cells
+	 */
+	static int getNumberOfSegments(long n) {
+		return (int)((n + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+	}
+	/**
+	 * @param n number of cells
+	 * @param s index of segment
+	 * @return number of cells in segment s
+	 */
+	static int getSegmentCells(long n, int s) {
+		return (int)Math.min(SEGMENT_CELLS, n - ((long)s << SEGMENT_SHIFT));
+	}
+	/**
+	 * Releases the native memory of this floorplan.
+	 * Calling close more than once has no effect.
+	 * Subclasses that override this method need to call it.
+	 */
+	@Override
+	public void close() {
+		final ByteBuffer[] released = buffers;
+		if (null == released)
+			return;
+		buffers = null;
+		segments = null;
+		if (null == INVOKE_CLEANER)
+			return;
+		try {
+			for (ByteBuffer b : released) {
+				INVOKE_CLEANER.invoke(UNSAFE, b);
+			}
+		} catch (ReflectiveOperationException e) {
+			// memory is released by the garbage collector instead
+		}
+	}
+	/**
+	 * @return true if {@link #close()} has been called, false otherwise
+	 */
+	public boolean isClosed() {
+		return null == buffers;
+	}
+
+	////////////////// storage ////////////////////////////////////////////////
+	@Override
+	protected int readCell(int index) {
+		return getSegment(index).get(index & SEGMENT_MASK);
+	}
+	@Override
+	protected int orCell(int index, int bitmask) {
+		final IntBuffer segment = getSegment(index);
+		final int old = segment.get(index & SEGMENT_MASK);
+		segment.put(index & SEGMENT_MASK, old | bitmask);
+		return old;
+	}
+	@Override
+	protected int andNotCell(int index, int bitmask) {
+		final IntBuffer segment = getSegment(index);
+		final int old = segment.get(index & SEGMENT_MASK);
+		segment.put(index & SEGMENT_MASK, old & ~bitmask);
+		return old;
+	}
+	/**
+	 * Gives the buffers with native memory to subclasses.
+	 * @return buffers of all segments
+	 * @throws IllegalStateException if floorplan is closed
+	 */
+	protected ByteBuffer[] getBuffers() {
+		final ByteBuffer[] b = buffers;
+		if (null == b)
+			throw new IllegalStateException("OffHeapFloorplan: access after close");
+		return b;
+	}
+	private IntBuffer getSegment(int index) {
+		final IntBuffer[] s = segments;
+		if (null == s)
+			throw new IllegalStateException("OffHeapFloorplan: access after close");
+		return s[index >>> SEGMENT_SHIFT];
+	}
+}
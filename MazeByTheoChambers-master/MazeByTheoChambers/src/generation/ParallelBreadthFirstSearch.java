@@ -0,0 +1,178 @@
+package generation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class computes distance values with a level-synchronous
+ * breadth-first search that runs on the fork-join pool.
+ *
+ * The search proceeds in rounds. In each round, the current frontier,
+ * i.e. all positions that received their distance value in the previous
+ * round, is split into chunks that are processed in parallel.
+ * A neighbor is claimed by setting its bit in a shared bitmap with an
+ * atomic compare-and-set operation, so exactly one task assigns
+ * its distance value and adds it to the next frontier.
+ * As all positions of a round share the same distance value, the
+ * result does not depend on which task claims a position first
+ * and matches the sequential search in {@link Distance} exactly.
+ *
+ * Small frontiers are processed by the calling thread to avoid
+ * the overhead of task creation, so the parallel search pays off
+ * for large mazes with wide frontiers only.
+ *
+ * History: class resulted from adding a parallel mode to the Distance class.
+ * It is used only internally to the package.
+ */
+final class ParallelBreadthFirstSearch {
+	/**
+	 * Frontiers with fewer positions are processed sequentially,
+	 * it is also the minimum number of positions for a task.
+	 */
+	static final int SEQUENTIAL_THRESHOLD = 512;
+	/**
+	 * Buffer of each worker thread for the positions it claims in a range of the frontier.
+	 * A range holds at most SEQUENTIAL_THRESHOLD positions, so the buffer never needs to grow.
+	 * It is shared by all searches of a thread and holds no reference to a search.
+	 */
+	private static final ThreadLocal<int[]> buffers = ThreadLocal.withInitial(() -> new int[4*SEQUENTIAL_THRESHOLD]);
+
+	private final Floorplan cells ; // floorplan with maze layout, read only
+	private final int[][] dists ; // distance matrix that receives the results
+	private final int width ; // width of maze
+	private final int height ; // height of maze
+	private final AtomicLongArray visited ; // one bit per position encoded as x*height+y
+	private int[] frontier ; // positions of the current round
+	private int[] nextFrontier ; // positions of the next round
+	private final AtomicInteger nextSize = new AtomicInteger(); // number of positions in nextFrontier
+	private int nextDistance ; // distance value for positions that are claimed in the current round
+
+	/**
+	 * Constructor
+	 * @param cells with information on wallboards for a maze, can not be null, read only
+	 * @param dists distance matrix of dimension width x height,
+	 * all entries must carry the INFINITY value
+	 * @param queue an array of length width*height that can be used as a frontier
+	 */
+	ParallelBreadthFirstSearch(Floorplan cells, int[][] dists, int[] queue) {
+		this.cells = cells;
+		this.dists = dists;
+		this.width = dists.length;
+		this.height = dists[0].length;
+		this.visited = new AtomicLongArray((width*height + 63) >>> 6);
+		this.frontier = queue;
+		this.nextFrontier = new int[width*height];
+	}
+	/**
+	 * Computes distances to the given position (ax,ay) for all reachable cells.
+	 * The position (ax,ay) receives distance value 1.
+	 * @param ax, position, x coordinate
+	 * @param ay, position, y coordinate
+	 * @return the number of positions that received a finite distance value
+	 */
+	int search(int ax, int ay) {
+		final int source = ax*height + ay;
+		claim(source);
+		dists[ax][ay] = 1;
+		frontier[0] = source;
+		int size = 1;
+		int reached = 1;
+		nextDistance = 2;
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		while (size > 0) {
+			nextSize.set(0);
+			if (size < SEQUENTIAL_THRESHOLD)
+				expand(0, size);
+			else
+				pool.invoke(new FrontierTask(0, size));
+			// swap frontiers for the next round
+			int[] tmp = frontier;
+			frontier = nextFrontier;
+			nextFrontier = tmp;
+			size = nextSize.get();
+			reached += size;
+			nextDistance++;
+		}
+		return reached;
+	}
+	/**
+	 * Expands the positions in the given range of the current frontier.
+	 * Positions that are claimed are collected in the buffer of the worker thread
+	 * and copied into the next frontier as a block to keep contention low.
+	 * @param from first index in frontier (inclusive)
+	 * @param to last index in frontier (exclusive), {@code to - from <= SEQUENTIAL_THRESHOLD}
+	 */
+	private void expand(int from, int to) {
+		assert to - from <= SEQUENTIAL_THRESHOLD : "range too large for buffer: " + (to - from);
+		// each position has at most 3 unvisited neighbors, except for the source
+		final int[] found = buffers.get();
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			final int pos = frontier[i];
+			final int x = pos / height;
+			final int y = pos - x*height;
+			final int value = cells.getValueOfCell(x, y);
+			if ((value & Floorplan.CW_TOP) == 0 && 0 < y && claim(pos - 1)) {
+				dists[x][y-1] = nextDistance;
+				found[count++] = pos - 1;
+			}
+			if ((value & Floorplan.CW_BOT) == 0 && y < height-1 && claim(pos + 1)) {
+				dists[x][y+1] = nextDistance;
+				found[count++] = pos + 1;
+			}
+			if ((value & Floorplan.CW_LEFT) == 0 && 0 < x && claim(pos - height)) {
+				dists[x-1][y] = nextDistance;
+				found[count++] = pos - height;
+			}
+			if ((value & Floorplan.CW_RIGHT) == 0 && x < width-1 && claim(pos + height)) {
+				dists[x+1][y] = nextDistance;
+				found[count++] = pos + height;
+			}
+		}
+		if (count > 0) {
+			final int offset = nextSize.getAndAdd(count);
+			System.arraycopy(found, 0, nextFrontier, offset, count);
+		}
+	}
+	/**
+	 * Claims the given position by setting its bit in the bitmap.
+	 * @param pos position encoded as x*height+y
+	 * @return true if the bit was set by this call, false if the position was visited before
+	 */
+	private boolean claim(int pos) {
+		final int word = pos >>> 6;
+		final long bit = 1L << (pos & 63);
+		long current = visited.get(word);
+		while ((current & bit) == 0) {
+			if (visited.compareAndSet(word, current, current | bit))
+				return true;
+			current = visited.get(word);
+		}
+		return false;
+	}
+	/**
+	 * Task that expands a range of the current frontier,
+	 * large ranges are split in halves that are processed in parallel.
+	 */
+	private final class FrontierTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		FrontierTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		@Override
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				expand(from, to);
+				return;
+			}
+			final int middle = (from + to) >>> 1;
+			invokeAll(new FrontierTask(from, middle), new FrontierTask(middle, to));
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package generation;
+
+/**
+ * This class finds a shortest path between two arbitrary positions
+ * of a maze with a bidirectional A* search.
+ *
+ * One search starts at the source and estimates the remaining
+ * distance to the target, the other starts at the target and
+ * estimates the distance to the source, both with the Manhattan distance.
+ * Each time a search reaches a position that the other search has
+ * reached before, the length of the combined path is a candidate for
+ * the shortest path. The Manhattan distance is consistent, so
+ * a side can stop as soon as its smallest key is not smaller than the best
+ * candidate: no position in its queue can lead to a shorter path.
+ * The side with fewer positions in its queue expands next.
+ *
+ * A path is encoded as a byte array where each entry is the ordinal
+ * of the {@link CardinalDirection} of a step, in the order of the steps.
+ *
+ * Search buffers are kept for each thread and reused for all queries
+ * of that thread, arrays are stamped with the number of the query
+ * to avoid clearing them.
+ *
+ * History: class resulted from adding path queries to the Maze interface.
+ * It is used only internally to the package.
+ */
+final class PathFinder {
+	/**
+	 * Search buffers of the current thread, replaced by larger
+	 * ones if a query comes for a larger maze.
+	 */
+	private static final ThreadLocal<PathFinder> buffers = new ThreadLocal<>();
+	/**
+	 * Step direction for ordinals of CardinalDirection North, East, South, West.
+	 */
+	private static final int[] DX = { 0, 1, 0, -1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+	private static final int[] WALL = { Floorplan.CW_TOP, Floorplan.CW_RIGHT, Floorplan.CW_BOT, Floorplan.CW_LEFT };
+
+	private final int capacity ; // number of positions the buffers can hold
+	private final Side forward ; // search from the source
+	private final Side backward ; // search from the target
+	private int query ; // number of the current query
+	// settings for the current query
+	private Floorplan floorplan ;
+	private int width ;
+	private int height ;
+	private int best ; // length of the shortest path found so far
+	private int meeting ; // position where the shortest path so far joins both searches
+
+	private PathFinder(int capacity) {
+		this.capacity = capacity;
+		forward = new Side(capacity);
+		backward = new Side(capacity);
+	}
+	/**
+	 * Finds a shortest path from (fromX,fromY) to (toX,toY).
+	 * @param floorplan with information on wallboards for a maze, read only
+	 * @param fromX is on the horizontal axis, {@code 0 <= fromX < width}
+	 * @param fromY is on the vertical axis, {@code 0 <= fromY < height}
+	 * @param toX is on the horizontal axis, {@code 0 <= toX < width}
+	 * @param toY is on the vertical axis, {@code 0 <= toY < height}
+	 * @return the directions of all steps, an empty array if both positions are
+	 * the same, null if there is no path
+	 */
+	static byte[] findPath(Floorplan floorplan, int fromX, int fromY, int toX, int toY) {
+		final int n = floorplan.getWidth()*floorplan.getHeight();
+		PathFinder finder = buffers.get();
+		if (null == finder || finder.capacity < n) {
+			finder = new PathFinder(n);
+			buffers.set(finder);
+		}
+		return finder.search(floorplan, fromX, fromY, toX, toY);
+	}
+	/**
+	 * Runs the bidirectional search on the buffers of this instance.
+	 * Buffers outlive the query, so the floorplan is released
+	 * at the end to not keep it from being collected.
+	 */
+	private byte[] search(Floorplan floorplan, int fromX, int fromY, int toX, int toY) {
+		if (fromX == toX && fromY == toY)
+			return new byte[0];
+		this.floorplan = floorplan;
+		try {
+			return search(fromX, fromY, toX, toY);
+		} finally {
+			this.floorplan = null;
+		}
+	}
+	private byte[] search(int fromX, int fromY, int toX, int toY) {
+		this.width = floorplan.getWidth();
+		this.height = floorplan.getHeight();
+		if (Integer.MAX_VALUE == query) {
+			forward.reset();
+			backward.reset();
+			query = 0;
+		}
+		query++;
+		best = Integer.MAX_VALUE;
+		meeting = -1;
+		final int source = fromX*height + fromY;
+		final int target = toX*height + toY;
+		forward.start(source, toX, toY, fromX, fromY);
+		backward.start(target, fromX, fromY, toX, toY);
+		while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+			if (forward.open.peekKey() >= best || backward.open.peekKey() >= best)
+				break; // no shorter path possible
+			if (forward.open.size() <= backward.open.size())
+				expand(forward, backward);
+			else
+				expand(backward, forward);
+		}
+		if (meeting < 0)
+			return null;
+		return buildPath(source, target);
+	}
+	/**
+	 * Takes the position with the smallest key from the given side and
+	 * updates its neighbors, checks if a neighbor is known to the other side.
+	 */
+	private void expand(Side side, Side other) {
+		final int pos = side.open.poll();
+		if (side.closed[pos] == query)
+			return; // outdated entry
+		side.closed[pos] = query;
+		final int x = pos / height;
+		final int y = pos - x*height;
+		final int value = floorplan.getValueOfCell(x, y);
+		final int cost = side.cost[pos] + 1;
+		for (int d = 0; d < 4; d++) {
+			if ((value & WALL[d]) != 0)
+				continue;
+			final int nx = x + DX[d];
+			final int ny = y + DY[d];
+			if (nx < 0 || nx >= width || ny < 0 || ny >= height)
+				continue;
+			final int next = nx*height + ny;
+			if (side.closed[next] == query || (side.reached[next] == query && side.cost[next] <= cost))
+				continue;
+			side.cost[next] = cost;
+			side.reached[next] = query;
+			side.step[next] = (byte)d;
+			side.open.add(cost + Math.abs(nx - side.goalX) + Math.abs(ny - side.goalY), next);
+			if (other.reached[next] == query && cost + other.cost[next] < best) {
+				best = cost + other.cost[next];
+				meeting = next;
+			}
+		}
+	}
+	/**
+	 * Puts together the path from the source to the meeting position
+	 * and from the meeting position to the target.
+	 */
+	private byte[] buildPath(int source, int target) {
+		final byte[] result = new byte[best];
+		// forward side: steps lead from the source to a position, walk back
+		int pos = meeting;
+		for (int i = forward.cost[meeting] - 1; i >= 0; i--) {
+			final byte d = forward.step[pos];
+			result[i] = d;
+			pos -= DX[d]*height + DY[d];
+		}
+		assert pos == source : "forward path does not start at source";
+		// backward side: steps lead from the target to a position, reverse each
+		pos = meeting;
+		for (int i = forward.cost[meeting]; i < best; i++) {
+			final byte d = backward.step[pos];
+			pos -= DX[d]*height + DY[d];
+			result[i] = (byte)((d + 2) & 3); // opposite direction
+		}
+		assert pos == target : "backward path does not end at target";
+		return result;
+	}
+	/**
+	 * Buffers for one direction of the search.
+	 */
+	private final class Side {
+		final int[] cost ; // number of steps from the start of this side
+		final int[] reached ; // query number when cost was set
+		final int[] closed ; // query number when position was expanded
+		final byte[] step ; // ordinal of the direction of the last step to a position
+		final IntMinHeap open = new IntMinHeap(64) ; // positions with estimated total cost
+		int goalX ; // the start of the other side, target of the estimate
+		int goalY ;
+
+		Side(int capacity) {
+			cost = new int[capacity];
+			reached = new int[capacity];
+			closed = new int[capacity];
+			step = new byte[capacity];
+		}
+		void reset() {
+			java.util.Arrays.fill(reached, 0);
+			java.util.Arrays.fill(closed, 0);
+		}
+		void start(int pos, int goalX, int goalY, int x, int y) {
+			this.goalX = goalX;
+			this.goalY = goalY;
+			open.clear();
+			cost[pos] = 0;
+			reached[pos] = query;
+			open.add(Math.abs(x - goalX) + Math.abs(y - goalY), pos);
+		}
+	}
+}
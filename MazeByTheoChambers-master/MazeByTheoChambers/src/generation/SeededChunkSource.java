@@ -0,0 +1,171 @@
+package generation;
+
+import java.util.Random;
+
+/**
+ * This class generates a perfect maze chunk by chunk for a {@link TiledFloorplan}
+ * such that each chunk can be regenerated on its own from the seed.
+ *
+ * Inside a chunk, passages are carved with a randomized depth-first search
+ * that uses a random number stream derived from the seed and the position
+ * of the chunk. This gives a spanning tree for the cells of the chunk.
+ * Chunks are connected to each other like cells in the binary tree algorithm:
+ * each chunk has a single door to its west or to its north neighbor,
+ * chunks in the top row connect to the west, chunks in the left column
+ * to the north. This gives a spanning tree for the chunks, so the whole
+ * maze is a perfect maze as well.
+ *
+ * Whether two neighboring chunks share a door and where the door is located
+ * on their common edge only depends on the seed and the position of the
+ * chunk on the south or east side of the edge. Both chunks compute the same
+ * door, so wallboards on either side of a chunk edge match.
+ *
+ * All cells are marked as visited, borders are set on the outside of the maze
+ * and the exit is on the right side of the bottom-right cell.
+ * There are no rooms.
+ */
+public class SeededChunkSource implements TiledFloorplan.ChunkSource {
+	private static final int SIZE = TiledFloorplan.CHUNK_SIZE;
+	// salt values to derive independent random values for a chunk
+	private static final int CARVE = 0;
+	private static final int DIRECTION = 1;
+	private static final int DOOR = 2;
+
+	private final int width ; // width of maze
+	private final int height ; // height of maze
+	private final long seed ;
+	private final int chunksX ; // number of chunks in a row
+	private final int chunksY ; // number of chunks in a column
+
+	/**
+	 * Constructor
+	 * @param width of maze, {@code 0 < width}
+	 * @param height of maze, {@code 0 < height}
+	 * @param seed for the random decisions
+	 */
+	public SeededChunkSource(int width, int height, long seed) {
+		this.width = width;
+		this.height = height;
+		this.seed = seed;
+		chunksX = (width + SIZE - 1) / SIZE;
+		chunksY = (height + SIZE - 1) / SIZE;
+	}
+	@Override
+	public void generate(int chunkX, int chunkY, int[] cells) {
+		final int x0 = chunkX*SIZE;
+		final int y0 = chunkY*SIZE;
+		final int w = Math.min(SIZE, width - x0); // cells of chunk inside the maze
+		final int h = Math.min(SIZE, height - y0);
+		// all wallboards up, borders on the outside of the maze
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int value = Floorplan.CW_ALL;
+				if (0 == y0 + y)
+					value |= Floorplan.CW_TOP << Floorplan.CW_BOUND_SHIFT;
+				if (height-1 == y0 + y)
+					value |= Floorplan.CW_BOT << Floorplan.CW_BOUND_SHIFT;
+				if (0 == x0 + x)
+					value |= Floorplan.CW_LEFT << Floorplan.CW_BOUND_SHIFT;
+				if (width-1 == x0 + x)
+					value |= Floorplan.CW_RIGHT << Floorplan.CW_BOUND_SHIFT;
+				cells[y*SIZE + x] = value;
+			}
+		}
+		carve(cells, w, h, new Random(hash(chunkX, chunkY, CARVE)));
+		// doors on all four edges of the chunk
+		if (connectsWest(chunkX, chunkY))
+			cells[getDoor(chunkX, chunkY, h)*SIZE] &= ~Floorplan.CW_LEFT;
+		if (connectsNorth(chunkX, chunkY))
+			cells[getDoor(chunkX, chunkY, w)] &= ~Floorplan.CW_TOP;
+		if (chunkX+1 < chunksX && connectsWest(chunkX+1, chunkY))
+			cells[getDoor(chunkX+1, chunkY, h)*SIZE + w-1] &= ~Floorplan.CW_RIGHT;
+		if (chunkY+1 < chunksY && connectsNorth(chunkX, chunkY+1))
+			cells[(h-1)*SIZE + getDoor(chunkX, chunkY+1, w)] &= ~Floorplan.CW_BOT;
+		// exit as Floorplan.setExitPosition(width-1, height-1) does it
+		if (chunkX == chunksX-1 && chunkY == chunksY-1)
+			cells[(h-1)*SIZE + w-1] &= ~Floorplan.CW_RIGHT;
+	}
+	/**
+	 * Carves passages with a randomized depth-first search from the top-left cell.
+	 */
+	private static void carve(int[] cells, int w, int h, Random random) {
+		final boolean[] visited = new boolean[SIZE*SIZE];
+		final int[] stack = new int[w*h];
+		final int[] candidates = new int[4];
+		int top = 0;
+		stack[top++] = 0;
+		visited[0] = true;
+		while (top > 0) {
+			final int pos = stack[top-1];
+			final int x = pos & (SIZE-1);
+			final int y = pos / SIZE;
+			int n = 0;
+			if (y > 0 && !visited[pos-SIZE])
+				candidates[n++] = Floorplan.CW_TOP;
+			if (y < h-1 && !visited[pos+SIZE])
+				candidates[n++] = Floorplan.CW_BOT;
+			if (x > 0 && !visited[pos-1])
+				candidates[n++] = Floorplan.CW_LEFT;
+			if (x < w-1 && !visited[pos+1])
+				candidates[n++] = Floorplan.CW_RIGHT;
+			if (0 == n) {
+				top--;
+				continue;
+			}
+			final int bit = candidates[random.nextInt(n)];
+			final int next;
+			final int opposite;
+			switch (bit) {
+			case Floorplan.CW_TOP :
+				next = pos - SIZE;
+				opposite = Floorplan.CW_BOT;
+				break;
+			case Floorplan.CW_BOT :
+				next = pos + SIZE;
+				opposite = Floorplan.CW_TOP;
+				break;
+			case Floorplan.CW_LEFT :
+				next = pos - 1;
+				opposite = Floorplan.CW_RIGHT;
+				break;
+			default:
+				next = pos + 1;
+				opposite = Floorplan.CW_LEFT;
+				break;
+			}
+			cells[pos] &= ~bit;
+			cells[next] &= ~opposite;
+			visited[next] = true;
+			stack[top++] = next;
+		}
+	}
+	/**
+	 * @return true if chunk has its door on the west edge
+	 */
+	private boolean connectsWest(int chunkX, int chunkY) {
+		return chunkX > 0 && (0 == chunkY || 0 == (hash(chunkX, chunkY, DIRECTION) & 1));
+	}
+	/**
+	 * @return true if chunk has its door on the north edge
+	 */
+	private boolean connectsNorth(int chunkX, int chunkY) {
+		return chunkY > 0 && !connectsWest(chunkX, chunkY);
+	}
+	/**
+	 * Gives the position of the door of a chunk along its edge.
+	 * @param length is the number of cells along the edge
+	 * @return offset of the door, {@code 0 <= offset < length}
+	 */
+	private int getDoor(int chunkX, int chunkY, int length) {
+		return (int)Long.remainderUnsigned(hash(chunkX, chunkY, DOOR), length);
+	}
+	/**
+	 * Mixes seed, chunk position and salt into a well distributed value.
+	 */
+	private long hash(int chunkX, int chunkY, int salt) {
+		long z = seed ^ (chunkX * 0x9E3779B97F4A7C15L) ^ (chunkY * 0xC2B2AE3D27D4EB4FL) ^ (salt * 0x165667B19E3779F9L);
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,221 @@
+package generation;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * This class is a floorplan that splits the maze into square chunks
+ * of {@code CHUNK_SIZE x CHUNK_SIZE} cells and allocates a chunk only
+ * when it is first needed. Memory then grows with the area of the maze
+ * that is actually used instead of with width*height.
+ *
+ * The content of a new chunk comes from a {@link ChunkSource}.
+ * Without a source, cells of a new chunk are 0 as for a new Floorplan and
+ * reading a chunk that has not been allocated gives 0 without allocating it.
+ * A source must be deterministic, i.e., deliver the same content each time
+ * it is asked for the same chunk, see {@link SeededChunkSource}.
+ * This allows to evict a chunk that has not been changed since it was
+ * generated and to regenerate it when it is needed again.
+ * A chunk that has been changed is dirty and stays in memory.
+ *
+ * Eviction happens with {@link #evictCleanChunks()} or automatically if a new
+ * chunk would exceed the given capacity; then the clean chunk that was
+ * allocated first is evicted.
+ *
+ * Several threads may read a tiled floorplan at the same time, as the parallel
+ * traversals of Distance and MazeMetrics do, although a read may allocate
+ * a chunk and evict another one. Allocation and eviction hold the lock of the
+ * floorplan and a new chunk is published with release semantics, so a reader
+ * that finds a chunk sees it fully generated. A reader that still uses a chunk
+ * that is evicted meanwhile reads the same values as from its replacement.
+ * As for a Floorplan, changes must not happen concurrently with other
+ * reads or changes.
+ *
+ * Note that {@link #initialize()} changes every cell, so a tiled floorplan
+ * that is used as a plain replacement for a Floorplan in a MazeBuilder
+ * ends up with all chunks allocated and dirty. Savings come from a source
+ * that generates the maze content chunk by chunk.
+ */
+public class TiledFloorplan extends Floorplan {
+	/**
+	 * Width and height of a chunk in cells.
+	 */
+	public static final int CHUNK_SIZE = 64;
+	private static final int CHUNK_SHIFT = 6;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final VarHandle CHUNKS = MethodHandles.arrayElementVarHandle(int[][].class);
+
+	/**
+	 * Provides the content of a chunk.
+	 */
+	@FunctionalInterface
+	public interface ChunkSource {
+		/**
+		 * Fills in the cells of a chunk, the same values each time for the same chunk.
+		 * @param chunkX is the horizontal index of the chunk, cells start at x = chunkX*CHUNK_SIZE
+		 * @param chunkY is the vertical index of the chunk, cells start at y = chunkY*CHUNK_SIZE
+		 * @param cells are the cells of the chunk row by row, cell (x,y) of the chunk is at
+		 * index y*CHUNK_SIZE+x, all 0 when called, cells outside of the maze are ignored
+		 */
+		void generate(int chunkX, int chunkY, int[] cells);
+	}
+
+	private final ChunkSource source ; // content of new chunks, null for 0
+	private final int capacity ; // number of chunks to keep before clean ones are evicted
+	private final int chunksX ; // number of chunks in a row
+	// chunk cy*chunksX+cx, null if not allocated, set while holding the lock
+	private final int[][] chunks ;
+	private final boolean[] dirty ; // true if chunk changed after allocation
+	// fields below are guarded by the lock of the floorplan
+	private int allocated ; // number of chunks in memory
+	// chunks in order of allocation, candidates for eviction, each chunk at most once
+	private final int[] queue ;
+	private int head ;
+	private int queued ;
+
+	/**
+	 * Constructor for a floorplan where all cells are 0 initially
+	 * and chunks are never evicted.
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 */
+	public TiledFloorplan(int w, int h) {
+		this(w, h, null, Integer.MAX_VALUE);
+	}
+	/**
+	 * Constructor
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 * @param source provides the content of new chunks, null for cells with value 0
+	 * @param capacity is the number of chunks to keep in memory before clean chunks
+	 * are evicted, {@code 0 < capacity}
+	 */
+	public TiledFloorplan(int w, int h, ChunkSource source, int capacity) {
+		super(w, h, false);
+		this.source = source;
+		this.capacity = capacity;
+		chunksX = (w + CHUNK_MASK) >>> CHUNK_SHIFT;
+		final int n = chunksX * ((h + CHUNK_MASK) >>> CHUNK_SHIFT);
+		chunks = new int[n][];
+		dirty = new boolean[n];
+		queue = new int[n];
+	}
+	/**
+	 * @return the number of chunks in memory
+	 */
+	public synchronized int getNumberOfAllocatedChunks() {
+		return allocated;
+	}
+	/**
+	 * Releases all chunks that have not been changed since they were generated.
+	 * Does nothing without a chunk source as such chunks can not be regenerated.
+	 * @return the number of evicted chunks
+	 */
+	public synchronized int evictCleanChunks() {
+		if (null == source)
+			return 0;
+		int result = 0;
+		for (int c = 0; c < chunks.length; c++) {
+			if (null != chunks[c] && !dirty[c]) {
+				chunks[c] = null;
+				allocated--;
+				result++;
+			}
+		}
+		// only dirty chunks are left, none of them can be evicted
+		head = 0;
+		queued = 0;
+		return result;
+	}
+
+	@Override
+	public int getValueOfCell(int x, int y) {
+		final int[] chunk = getChunkForRead(getChunkIndex(x, y));
+		return (null == chunk) ? 0 : chunk[getOffset(x, y)];
+	}
+
+	////////////////// storage ////////////////////////////////////////////////
+	@Override
+	protected int readCell(int index) {
+		return getValueOfCell(index % getWidth(), index / getWidth());
+	}
+	@Override
+	protected int orCell(int index, int bitmask) {
+		final int x = index % getWidth();
+		final int y = index / getWidth();
+		final int c = getChunkIndex(x, y);
+		final int[] chunk = getChunk(c);
+		final int i = getOffset(x, y);
+		final int old = chunk[i];
+		if ((old | bitmask) != old) {
+			chunk[i] = old | bitmask;
+			dirty[c] = true;
+		}
+		return old;
+	}
+	@Override
+	protected int andNotCell(int index, int bitmask) {
+		final int x = index % getWidth();
+		final int y = index / getWidth();
+		final int c = getChunkIndex(x, y);
+		final int[] chunk = getChunk(c);
+		final int i = getOffset(x, y);
+		final int old = chunk[i];
+		if ((old & ~bitmask) != old) {
+			chunk[i] = old & ~bitmask;
+			dirty[c] = true;
+		}
+		return old;
+	}
+	private int getChunkIndex(int x, int y) {
+		return (y >>> CHUNK_SHIFT)*chunksX + (x >>> CHUNK_SHIFT);
+	}
+	private static int getOffset(int x, int y) {
+		return ((y & CHUNK_MASK) << CHUNK_SHIFT) + (x & CHUNK_MASK);
+	}
+	/**
+	 * Gives a chunk for reading, without a source there is no need
+	 * to allocate a chunk as all its cells are 0.
+	 * @return the chunk, null if all its cells are 0
+	 */
+	private int[] getChunkForRead(int c) {
+		final int[] chunk = (int[]) CHUNKS.getAcquire(chunks, c);
+		if (null != chunk || null == source)
+			return chunk;
+		return allocate(c);
+	}
+	private int[] getChunk(int c) {
+		final int[] chunk = (int[]) CHUNKS.getAcquire(chunks, c);
+		return (null != chunk) ? chunk : allocate(c);
+	}
+	/**
+	 * Allocates and fills a chunk, evicts a clean chunk first if capacity is reached.
+	 * Does nothing if another thread allocated the chunk while this one waited for the lock.
+	 */
+	private synchronized int[] allocate(int c) {
+		if (null != chunks[c])
+			return chunks[c];
+		while (allocated >= capacity && queued > 0) {
+			final int candidate = queue[head];
+			head = (head + 1) % queue.length;
+			queued--;
+			// dirty chunks stay, they can not be regenerated
+			if (null != chunks[candidate] && !dirty[candidate]) {
+				chunks[candidate] = null;
+				allocated--;
+			}
+		}
+		final int[] chunk = new int[CHUNK_SIZE*CHUNK_SIZE];
+		if (null != source)
+			source.generate(c % chunksX, c / chunksX, chunk);
+		// readers outside of the lock must see the generated content
+		CHUNKS.setRelease(chunks, c, chunk);
+		dirty[c] = false;
+		allocated++;
+		if (null != source) {
+			queue[(head + queued) % queue.length] = c;
+			queued++;
+		}
+		return chunk;
+	}
+}
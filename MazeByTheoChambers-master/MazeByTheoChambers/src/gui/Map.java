@@ -8,6 +8,7 @@ import generation.Floorplan;
 import generation.Maze;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.util.Iterator;
 
 /**
  * This class encapsulates all functionality to draw a map of the overall maze,
@@ -458,19 +459,20 @@ public class Map {
 					maze.getHeight()) ;
 			return ;
 		}
+		// the path starts with the current position (px,py) and ends at the exit,
+		// the iterator delivers the same array with updated values on each call
+		Iterator<int[]> path = maze.getSolutionPath(px, py);
+		int[] position = path.next();
 		// current position on the solution path (sx,sy)
-		int sx = px;
-		int sy = py;
-		int distance = maze.getDistanceToExit(sx, sy);
+		int sx = position[0];
+		int sy = position[1];
 		
 		gc.setColor(Color.yellow);
 		
-		// while we are more than 1 step away from the final position
-		while (distance > 1) {
-			// find neighbor closer to exit (with no wallboard in between)
-			int[] neighbor = maze.getNeighborCloserToExit(sx, sy) ;
-			if (null == neighbor)
-				return ; // error
+		// while we are not at the final position
+		while (path.hasNext()) {
+			// neighbor closer to exit (with no wallboard in between)
+			position = path.next();
 			// scale coordinates, original calculation:
 			// x-coordinates
 			// nx1     == sx*map_scale + offx + map_scale/2;
@@ -491,15 +493,13 @@ public class Map {
 			// neighbor position coordinates
 			//int nx2 = neighbor[0]*map_scale + offx + map_scale/2;
 			//int ny2 = view_height-1-(neighbor[1]*map_scale + offy) - map_scale/2;
-			int nx2 = mapToCoordinateX(neighbor[0],offsetX) + mapScale/2;
-			int ny2 = mapToCoordinateY(neighbor[1],offsetY) - mapScale/2;
+			int nx2 = mapToCoordinateX(position[0],offsetX) + mapScale/2;
+			int ny2 = mapToCoordinateY(position[1],offsetY) - mapScale/2;
 			gc.drawLine(nx1, ny1, nx2, ny2);
 			
 			// update loop variables for current position (sx,sy)
-			// and distance d for next iteration
-			sx = neighbor[0];
-			sy = neighbor[1];
-			distance = maze.getDistanceToExit(sx, sy) ;
+			sx = position[0];
+			sy = position[1];
 		}
 	}
 	
@@ -87,6 +87,9 @@ public class MazeApplication extends JFrame {
 			else if(args[i].equalsIgnoreCase("Kruskal")) {
 				builder = "Kruskal";
 			}
+			else if(args[i].equalsIgnoreCase("Eller")) {
+				builder = "Eller";
+			}
 			
 			else if(args[i].equalsIgnoreCase("Wallfollower")) {
 				driver = "Wallfollower";
@@ -174,8 +177,8 @@ public class MazeApplication extends JFrame {
 	    }
 	    else if ("Eller".equalsIgnoreCase(parameter))
 	    {
-	    	// TODO: for P2 assignment, please add code to set the builder accordingly
-	        throw new RuntimeException("Don't know anybody named Eller ...");
+	    	 msg = "MazeApplication: generating random maze with Eller's algorithm.";
+		     result.setBuilder(Order.Builder.Eller);
 	    }
 	    // Case 4: a file
 	    else {
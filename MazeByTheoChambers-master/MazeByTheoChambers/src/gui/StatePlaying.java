@@ -5,7 +5,7 @@ import gui.Constants.UserInput;
 import java.util.Arrays;
 
 import generation.CardinalDirection;
-import generation.Floorplan;
+import generation.CopyOnWriteFloorplan;
 import generation.Maze;
 
 
@@ -54,8 +54,9 @@ public class StatePlaying extends DefaultState {
     
     int angle; // current viewing angle, east == 0 degrees
     int walkStep; // counter for intermediate steps within a single step forward or backward
-    Floorplan seenCells; // a matrix with cells to memorize which cells are visible from the current point of view
+    CopyOnWriteFloorplan seenCells; // a matrix with cells to memorize which cells are visible from the current point of view
     // the FirstPersonView obtains this information and the Map uses it for highlighting currently visible walls on the map
+    // a drawing thread of its own can work on seenCells.snapshot() without locks while seenCells changes
     private CompassRose cr; // compass rose to show current direction
     private int[] current_position = {0,0};
     
@@ -93,7 +94,7 @@ public class StatePlaying extends DefaultState {
         showSolution = false ;
         mapMode = false;
         // init data structure for visible walls
-        seenCells = new Floorplan(mazeConfig.getWidth()+1,mazeConfig.getHeight()+1) ;
+        seenCells = new CopyOnWriteFloorplan(mazeConfig.getWidth()+1,mazeConfig.getHeight()+1) ;
         // set the current position and direction consistently with the viewing direction
         setPositionDirectionViewingDirection();
         walkStep = 0; // counts incremental steps during move/rotate operation
@@ -0,0 +1,144 @@
+package generation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests that the bit plane floorplan behaves exactly like a regular
+ * floorplan with the same content.
+ */
+public class BitPlaneFloorplanTest {
+
+	private Maze maze;
+	private Floorplan floorplan; // regular floorplan of the maze
+	private BitPlaneFloorplan planes; // copy of floorplan
+
+	/**
+	 * We use a maze with rooms and a width that is not a multiple of 64
+	 * such that sequences cross word boundaries and end in partial words.
+	 */
+	@Before
+	public void setUp() {
+		maze = MazeFactoryTest.orderMaze(Builder.DFS, false, 12, 6, Floorplan::new);
+		floorplan = maze.getFloorplan();
+		planes = new BitPlaneFloorplan(floorplan);
+	}
+	/**
+	 * Test case: copy of a generated maze
+	 * <p>
+	 * Method under test: BitPlaneFloorplan(Floorplan), getValueOfCell, hasWall, equals
+	 * <p>
+	 * Correct behavior: all cells carry the same values and wallboards.
+	 */
+	@Test
+	public final void testSameContent() {
+		for (int x = 0; x < floorplan.getWidth(); x++) {
+			for (int y = 0; y < floorplan.getHeight(); y++) {
+				assertEquals(floorplan.getValueOfCell(x, y), planes.getValueOfCell(x, y));
+				for (CardinalDirection cd : CardinalDirection.values()) {
+					assertEquals(floorplan.hasWall(x, y, cd), planes.hasWall(x, y, cd));
+				}
+			}
+		}
+		assertTrue(planes.equals(new BitPlaneFloorplan(floorplan)));
+		// delete the first internal wallboard in the second row
+		int x = 0;
+		while (!floorplan.hasWall(x, 1, CardinalDirection.East))
+			x++;
+		planes.deleteWallboard(new Wallboard(x, 1, CardinalDirection.East));
+		assertFalse(planes.hasWall(x, 1, CardinalDirection.East));
+		assertFalse(planes.hasWall(x+1, 1, CardinalDirection.West));
+		assertFalse(planes.equals(new BitPlaneFloorplan(floorplan)));
+	}
+	/**
+	 * Test case: sequences of wallboards for all rows and columns
+	 * <p>
+	 * Method under test: iterator
+	 * <p>
+	 * Correct behavior: same sequences as for the regular floorplan, also
+	 * if the iteration starts in the middle of a row or column.
+	 */
+	@Test
+	public final void testSequences() {
+		int w = floorplan.getWidth();
+		int h = floorplan.getHeight();
+		for (int y = 0; y < h; y++) {
+			for (int x : new int[] {0, 1, 63, 64, w/2}) {
+				checkSameSequences(floorplan.iterator(x, y, CardinalDirection.North), planes.iterator(x, y, CardinalDirection.North));
+				checkSameSequences(floorplan.iterator(x, y, CardinalDirection.South), planes.iterator(x, y, CardinalDirection.South));
+			}
+		}
+		for (int x = 0; x < w; x++) {
+			for (int y : new int[] {0, 1, 63, 64, h/2}) {
+				checkSameSequences(floorplan.iterator(x, y, CardinalDirection.West), planes.iterator(x, y, CardinalDirection.West));
+				checkSameSequences(floorplan.iterator(x, y, CardinalDirection.East), planes.iterator(x, y, CardinalDirection.East));
+			}
+		}
+	}
+	/**
+	 * Test case: sequences of wallboards in a single pass
+	 * <p>
+	 * Method under test: forEachWallRun
+	 * <p>
+	 * Correct behavior: for both floorplans, the same sequences as the iterator of
+	 * the regular floorplan gives from the beginning of each row and column, 
+	 * rows first, North before South and West before East.
+	 */
+	@Test
+	public final void testWallRuns() {
+		final List<int[]> expected = new java.util.ArrayList<>();
+		for (int y = 0; y < floorplan.getHeight(); y++) {
+			addSequences(expected, CardinalDirection.North, y, floorplan.iterator(0, y, CardinalDirection.North));
+			addSequences(expected, CardinalDirection.South, y, floorplan.iterator(0, y, CardinalDirection.South));
+		}
+		for (int x = 0; x < floorplan.getWidth(); x++) {
+			addSequences(expected, CardinalDirection.West, x, floorplan.iterator(x, 0, CardinalDirection.West));
+			addSequences(expected, CardinalDirection.East, x, floorplan.iterator(x, 0, CardinalDirection.East));
+		}
+		for (Floorplan f : new Floorplan[] {floorplan, planes}) {
+			final List<int[]> actual = new java.util.ArrayList<>();
+			f.forEachWallRun((cd, line, start, end) -> actual.add(new int[] {cd.ordinal(), line, start, end}));
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++)
+				assertArrayEquals(expected.get(i), actual.get(i));
+		}
+	}
+	private static void addSequences(List<int[]> list, CardinalDirection cd, int line, Iterator<int[]> it) {
+		while (it.hasNext()) {
+			int[] seq = it.next();
+			list.add(new int[] {cd.ordinal(), line, seq[0], seq[1]});
+		}
+	}
+	/**
+	 * Test case: extraction of walls
+	 * <p>
+	 * Method under test: ListOfWallsBuilder.generateWalls
+	 * <p>
+	 * Correct behavior: both floorplans give the same list of walls.
+	 */
+	@Test
+	public final void testSameWalls() {
+		int w = floorplan.getWidth();
+		int h = floorplan.getHeight();
+		List<Wall> expected = new ListOfWallsBuilder(w, h, floorplan, maze.getMazedists(), 0).generateWalls();
+		List<Wall> actual = new ListOfWallsBuilder(w, h, planes, maze.getMazedists(), 0).generateWalls();
+		assertEquals(expected, actual);
+	}
+	private static void checkSameSequences(Iterator<int[]> expected, Iterator<int[]> actual) {
+		while (expected.hasNext()) {
+			assertTrue(actual.hasNext());
+			assertArrayEquals(expected.next(), actual.next());
+		}
+		assertFalse(actual.hasNext());
+	}
+}
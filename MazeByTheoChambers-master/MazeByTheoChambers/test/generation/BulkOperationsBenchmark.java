@@ -0,0 +1,131 @@
+package generation;
+
+import java.util.Arrays;
+
+import gui.Constants;
+
+/**
+ * Compares bulk operations on all cells of a maze against their
+ * former cell by cell implementation for each skill level.
+ *
+ * This is a benchmark to run by hand, not a test case.
+ * The cell by cell variants are obtained with a Floorplan subclass that
+ * initializes cells column by column as the former code did, runs range
+ * operations through the single cell storage methods and compares
+ * floorplans through readCell. For distances, a nested loop
+ * is compared against Arrays.fill for each column.
+ * Each operation is repeated for a fixed amount of time after a warm up,
+ * times are in microseconds per operation, e.g.,
+ * {@code java -cp bin:test generation.BulkOperationsBenchmark}.
+ */
+public class BulkOperationsBenchmark {
+
+	/**
+	 * Floorplan with the former cell by cell behavior.
+	 */
+	private static final class CellByCell extends Floorplan {
+		CellByCell(int w, int h) {
+			super(w, h);
+		}
+		@Override
+		public void initialize() {
+			for (int x = 0; x < getWidth(); x++) {
+				for (int y = 0; y < getHeight(); y++) {
+					orCell(getIndex(x, y), CW_VISITED | CW_ALL);
+				}
+			}
+			for (int x = 0; x < getWidth(); x++) {
+				orCell(getIndex(x, 0), getBoundForBit(CW_TOP));
+				orCell(getIndex(x, getHeight()-1), getBoundForBit(CW_BOT));
+			}
+			for (int y = 0; y < getHeight(); y++) {
+				orCell(getIndex(0, y), getBoundForBit(CW_LEFT));
+				orCell(getIndex(getWidth()-1, y), getBoundForBit(CW_RIGHT));
+			}
+		}
+		@Override
+		protected void orCells(int from, int to, int bitmask) {
+			for (int i = from; i < to; i++)
+				orCell(i, bitmask);
+		}
+		@Override
+		protected void andNotCells(int from, int to, int bitmask) {
+			for (int i = from; i < to; i++)
+				andNotCell(i, bitmask);
+		}
+	}
+
+	private static final long DURATION = 100_000_000L; // nanoseconds per measurement
+	private static long sum; // results of operations, keeps the JIT from removing them
+
+	public static void main(String[] args) {
+		SingleRandom.setSeed(1);
+		System.out.println("skill\tcells\tinit old\tinit new\trooms old\trooms new\tequals old\tequals new\tfill old\tfill new");
+		for (int skill = 0; skill < Constants.SKILL_X.length; skill++) {
+			final int w = Constants.SKILL_X[skill];
+			final int h = Constants.SKILL_Y[skill];
+			final Floorplan[] old = { new CellByCell(w, h), new CellByCell(w, h) };
+			final Floorplan[] now = { new Floorplan(w, h), new Floorplan(w, h) };
+			// equal floorplans for the comparison
+			final Floorplan[] oldPair = { new CellByCell(w, h), new CellByCell(w, h) };
+			final Floorplan[] nowPair = { new Floorplan(w, h), new Floorplan(w, h) };
+			for (int i = 0; i < 2; i++) {
+				oldPair[i].initialize();
+				nowPair[i].initialize();
+			}
+			final int[][] dists = new int[w][h];
+			final Runnable[] operations = {
+				() -> old[0].initialize(),
+				() -> now[0].initialize(),
+				() -> markRooms(old[1]),
+				() -> markRooms(now[1]),
+				() -> sum += oldPair[0].equals(oldPair[1]) ? 1 : 0,
+				() -> sum += nowPair[0].equals(nowPair[1]) ? 1 : 0,
+				() -> {
+					for (int x = 0; x < w; x++) {
+						for (int y = 0; y < h; y++) {
+							dists[x][y] = Distance.INFINITY;
+						}
+					}
+				},
+				() -> {
+					for (int x = 0; x < w; x++) {
+						Arrays.fill(dists[x], 0, h, Distance.INFINITY);
+					}
+				}
+			};
+			System.out.printf("%d\t%d", skill, w*h);
+			for (Runnable operation : operations) {
+				measure(operation); // warm up
+				System.out.printf("\t%.2f", measure(operation));
+			}
+			System.out.println();
+		}
+		System.out.println("(" + sum + ")");
+	}
+	/**
+	 * Runs the operation repeatedly for a fixed amount of time.
+	 * @return microseconds per operation
+	 */
+	private static double measure(Runnable operation) {
+		final long t0 = System.nanoTime();
+		long t;
+		int count = 0;
+		do {
+			for (int i = 0; i < 16; i++)
+				operation.run();
+			count += 16;
+			t = System.nanoTime() - t0;
+		} while (t < DURATION);
+		return t / 1e3 / count;
+	}
+	/**
+	 * Marks rooms of the largest dimension along the diagonal.
+	 */
+	private static void markRooms(Floorplan floorplan) {
+		final int size = MazeBuilder.MAX_ROOM_DIMENSION;
+		for (int p = 1; p + size < floorplan.getWidth() && p + size < floorplan.getHeight(); p += size + 2) {
+			floorplan.markAreaAsRoom(size, size, p, p, p + size - 1, p + size - 1);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests that several threads can change a concurrent floorplan at the same time
+ * without losing changes and without wallboards that differ on both sides.
+ */
+public class ConcurrentFloorplanTest {
+	private static final int WIDTH = 120;
+	private static final int HEIGHT = 80;
+	private static final int THREADS = 4;
+
+	/**
+	 * Test case: threads carve a maze together with a depth-first search each
+	 * <p>
+	 * Method under test: claimCell, tearDown
+	 * <p>
+	 * Correct behavior: each cell is claimed exactly once, each claimed
+	 * wallboard is torn down exactly once, the result is a spanning forest with
+	 * one tree per thread and both sides of each wallboard match.
+	 */
+	@Test
+	public final void testParallelCarving() throws InterruptedException {
+		final ConcurrentFloorplan floorplan = new ConcurrentFloorplan(WIDTH, HEIGHT);
+		floorplan.initialize();
+		final AtomicInteger claims = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int seed = t;
+			threads[t] = new Thread(() -> carve(floorplan, seed, claims, failures));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(WIDTH*HEIGHT, claims.get());
+		assertEquals(0, failures.get());
+		assertEquals(WIDTH*HEIGHT - THREADS, countOpeningsAndCheckSides(floorplan));
+		// a plain copy agrees on content and fingerprint
+		int[][] values = new int[WIDTH][HEIGHT];
+		for (int x = 0; x < WIDTH; x++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				assertFalse(floorplan.claimCell(x, y));
+				values[x][y] = floorplan.getValueOfCell(x, y);
+			}
+		}
+		Floorplan copy = new Floorplan(values);
+		assertTrue(copy.equals(floorplan));
+		assertEquals(copy.fingerprint(), floorplan.fingerprint());
+	}
+	/**
+	 * Test case: threads add and delete the same wallboards in striped mode
+	 * <p>
+	 * Method under test: addWallboard, deleteWallboard with locks
+	 * <p>
+	 * Correct behavior: both sides of each wallboard match in the end.
+	 */
+	@Test
+	public final void testStripedToggling() throws InterruptedException {
+		final ConcurrentFloorplan floorplan = new ConcurrentFloorplan(WIDTH, HEIGHT, 16);
+		assertTrue(floorplan.isStriped());
+		assertFalse(new ConcurrentFloorplan(WIDTH, HEIGHT).isStriped());
+		floorplan.initialize();
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final boolean add = (0 == t % 2);
+			final Random random = new Random(t);
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 50000; i++) {
+					// few wallboards such that threads often work on the same one
+					Wallboard wallboard = new Wallboard(random.nextInt(4), random.nextInt(4),
+							random.nextBoolean() ? CardinalDirection.East : CardinalDirection.South);
+					if (add)
+						floorplan.addWallboard(wallboard, true);
+					else
+						floorplan.deleteWallboard(wallboard);
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		countOpeningsAndCheckSides(floorplan);
+	}
+	/**
+	 * Test case: two threads tear down the same wallboard from opposite sides
+	 * <p>
+	 * Method under test: tearDown without stripes
+	 * <p>
+	 * Correct behavior: exactly one of the two calls succeeds in each trial.
+	 */
+	@Test
+	public final void testTearDownFromBothSides() throws InterruptedException {
+		final int trials = 20000;
+		final ConcurrentFloorplan[] floorplans = new ConcurrentFloorplan[trials];
+		for (int i = 0; i < trials; i++) {
+			floorplans[i] = new ConcurrentFloorplan(2, 1);
+			floorplans[i].initialize();
+		}
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		final AtomicInteger[] wins = new AtomicInteger[trials];
+		for (int i = 0; i < trials; i++)
+			wins[i] = new AtomicInteger();
+		Thread[] threads = new Thread[2];
+		for (int t = 0; t < 2; t++) {
+			final Wallboard wallboard = (0 == t) ? new Wallboard(0, 0, CardinalDirection.East)
+					: new Wallboard(1, 0, CardinalDirection.West);
+			threads[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < trials; i++) {
+						barrier.await();
+						if (floorplans[i].tearDown(wallboard))
+							wins[i].incrementAndGet();
+					}
+				} catch (InterruptedException | BrokenBarrierException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		for (int i = 0; i < trials; i++) {
+			assertEquals(1, wins[i].get());
+			assertTrue(floorplans[i].hasNoWall(0, 0, CardinalDirection.East));
+			assertTrue(floorplans[i].hasNoWall(1, 0, CardinalDirection.West));
+		}
+	}
+	/**
+	 * Test case: threads carve a maze while a journal records the changes
+	 * <p>
+	 * Method under test: startJournal, claimCell, tearDown, undoTo
+	 * <p>
+	 * Correct behavior: the journal holds each change of a cell once,
+	 * undoing them gives the floorplan from before the threads started.
+	 */
+	@Test
+	public final void testJournal() throws InterruptedException {
+		final ConcurrentFloorplan floorplan = new ConcurrentFloorplan(WIDTH, HEIGHT, 16);
+		floorplan.initialize();
+		Floorplan before = new Floorplan(WIDTH, HEIGHT);
+		before.initialize();
+		// visited bits of all cells and both sides of each torn down wallboard
+		final int changes = WIDTH*HEIGHT + 2*(WIDTH*HEIGHT - THREADS);
+		FloorplanJournal journal = floorplan.startJournal(changes);
+		final long mark = journal.mark();
+		final AtomicInteger claims = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int seed = t;
+			threads[t] = new Thread(() -> carve(floorplan, seed, claims, failures));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(0, failures.get());
+		assertEquals(mark + changes, journal.mark());
+		assertFalse(floorplan.equals(before));
+		floorplan.undoTo(mark);
+		assertTrue(floorplan.equals(before));
+	}
+	/**
+	 * Test case: threads mark cells as in a room while others count them
+	 * <p>
+	 * Method under test: setInRoomToOne, countCellsInRoom
+	 * <p>
+	 * Correct behavior: the room index that is built on the first count
+	 * does not miss any cell, no matter when the cell was marked.
+	 */
+	@Test
+	public final void testRoomIndex() throws InterruptedException {
+		final ConcurrentFloorplan floorplan = new ConcurrentFloorplan(WIDTH, HEIGHT);
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int row = t;
+			threads[t] = new Thread(() -> {
+				// threads mark disjoint rows and count in between
+				for (int y = row; y < HEIGHT; y += THREADS) {
+					for (int x = 0; x < WIDTH; x++)
+						floorplan.setInRoomToOne(x, y);
+					floorplan.countCellsInRoom(0, 0, WIDTH-1, HEIGHT-1);
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(WIDTH*HEIGHT, floorplan.countCellsInRoom(0, 0, WIDTH-1, HEIGHT-1));
+		assertTrue(floorplan.areaOverlapsWithRoom(1, 1, 2, 2));
+	}
+	/**
+	 * Carves passages with a randomized depth-first search from a random cell,
+	 * stops at cells that other threads claimed.
+	 */
+	private static void carve(ConcurrentFloorplan floorplan, long seed, AtomicInteger claims, AtomicInteger failures) {
+		final Random random = new Random(seed);
+		final int[] stack = new int[WIDTH*HEIGHT];
+		final CardinalDirection[] directions = CardinalDirection.values();
+		int top = 0;
+		int start;
+		do {
+			start = random.nextInt(WIDTH*HEIGHT);
+		} while (!floorplan.claimCell(start % WIDTH, start / WIDTH));
+		claims.incrementAndGet();
+		stack[top++] = start;
+		while (top > 0) {
+			final int x = stack[top-1] % WIDTH;
+			final int y = stack[top-1] / WIDTH;
+			boolean moved = false;
+			final int offset = random.nextInt(4);
+			for (int i = 0; i < 4 && !moved; i++) {
+				Wallboard wallboard = new Wallboard(x, y, directions[(i + offset) % 4]);
+				final int nx = wallboard.getNeighborX();
+				final int ny = wallboard.getNeighborY();
+				if (nx < 0 || nx >= WIDTH || ny < 0 || ny >= HEIGHT)
+					continue;
+				if (floorplan.claimCell(nx, ny)) {
+					claims.incrementAndGet();
+					if (!floorplan.tearDown(wallboard))
+						failures.incrementAndGet();
+					stack[top++] = ny*WIDTH + nx;
+					moved = true;
+				}
+			}
+			if (!moved)
+				top--;
+		}
+	}
+	/**
+	 * Checks that both sides of each internal wallboard match.
+	 * @return number of internal wallboards that are down
+	 */
+	private static int countOpeningsAndCheckSides(Floorplan floorplan) {
+		int openings = 0;
+		for (int x = 0; x < WIDTH; x++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				if (x < WIDTH-1) {
+					assertEquals(floorplan.hasWall(x, y, CardinalDirection.East), floorplan.hasWall(x+1, y, CardinalDirection.West));
+					if (floorplan.hasNoWall(x, y, CardinalDirection.East))
+						openings++;
+				}
+				if (y < HEIGHT-1) {
+					assertEquals(floorplan.hasWall(x, y, CardinalDirection.South), floorplan.hasWall(x, y+1, CardinalDirection.North));
+					if (floorplan.hasNoWall(x, y, CardinalDirection.South))
+						openings++;
+				}
+			}
+		}
+		return openings;
+	}
+}
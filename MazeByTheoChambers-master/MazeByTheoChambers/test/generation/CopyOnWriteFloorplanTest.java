@@ -0,0 +1,114 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests that snapshots of a copy-on-write floorplan do not change
+ * and can be read while the floorplan changes on another thread.
+ */
+public class CopyOnWriteFloorplanTest {
+	// width and height such that cells fill several chunks and a partial one
+	private static final int WIDTH = 50;
+	private static final int HEIGHT = 45;
+
+	/**
+	 * Test case: changes after a snapshot
+	 * <p>
+	 * Method under test: snapshot, fingerprint
+	 * <p>
+	 * Correct behavior: a snapshot keeps its content, the floorplan
+	 * has the new content, a snapshot can not be changed.
+	 */
+	@Test
+	public final void testSnapshot() {
+		CopyOnWriteFloorplan floorplan = new CopyOnWriteFloorplan(WIDTH, HEIGHT);
+		Floorplan empty = floorplan.snapshot();
+		floorplan.initialize();
+		Floorplan initialized = floorplan.snapshot();
+		floorplan.deleteWallboard(new Wallboard(10, 20, CardinalDirection.East));
+		floorplan.setInRoomToOne(WIDTH-1, HEIGHT-1);
+		assertTrue(empty.equals(new Floorplan(WIDTH, HEIGHT)));
+		Floorplan expected = new Floorplan(WIDTH, HEIGHT);
+		expected.initialize();
+		assertTrue(initialized.equals(expected));
+		assertEquals(expected.fingerprint(), initialized.fingerprint());
+		assertFalse(floorplan.equals(initialized));
+		assertTrue(floorplan.hasNoWall(11, 20, CardinalDirection.West));
+		assertTrue(initialized.hasWall(11, 20, CardinalDirection.West));
+		assertTrue(floorplan.isInRoom(WIDTH-1, HEIGHT-1));
+		assertFalse(initialized.isInRoom(WIDTH-1, HEIGHT-1));
+		assertTrue(floorplan.snapshot().equals(floorplan));
+		assertEquals(floorplan.fingerprint(), floorplan.snapshot().fingerprint());
+		try {
+			initialized.setCellAsVisited(0, 0);
+			fail("snapshot must be read only");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+	/**
+	 * Test case: reader thread checks snapshots while the writer changes the floorplan
+	 * <p>
+	 * Method under test: snapshot
+	 * <p>
+	 * Correct behavior: the writer always changes both sides of a wallboard
+	 * at once, so each snapshot has matching wallboards on both sides
+	 * of any edge between neighboring cells.
+	 */
+	@Test
+	public final void testConcurrentReader() throws InterruptedException {
+		final CopyOnWriteFloorplan floorplan = new CopyOnWriteFloorplan(WIDTH, HEIGHT);
+		floorplan.initialize();
+		final Floorplan[] published = { floorplan.snapshot() };
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicInteger checked = new AtomicInteger();
+		final AtomicInteger failures = new AtomicInteger();
+		Thread reader = new Thread(() -> {
+			while (!done.get()) {
+				Floorplan snapshot;
+				synchronized (published) {
+					snapshot = published[0];
+				}
+				for (int x = 0; x < WIDTH-1; x++) {
+					for (int y = 0; y < HEIGHT-1; y++) {
+						if (snapshot.hasWall(x, y, CardinalDirection.East) != snapshot.hasWall(x+1, y, CardinalDirection.West)
+								|| snapshot.hasWall(x, y, CardinalDirection.South) != snapshot.hasWall(x, y+1, CardinalDirection.North))
+							failures.incrementAndGet();
+					}
+				}
+				checked.incrementAndGet();
+			}
+		});
+		reader.start();
+		Random random = new Random(9);
+		for (int i = 0; i < 20000; i++) {
+			int x = random.nextInt(WIDTH-1);
+			int y = random.nextInt(HEIGHT-1);
+			CardinalDirection dir = random.nextBoolean() ? CardinalDirection.East : CardinalDirection.South;
+			Wallboard wallboard = new Wallboard(x, y, dir);
+			if (floorplan.hasWall(x, y, dir))
+				floorplan.deleteWallboard(wallboard);
+			else
+				floorplan.addWallboard(wallboard, true);
+			if (0 == i % 50) {
+				Floorplan snapshot = floorplan.snapshot();
+				synchronized (published) {
+					published[0] = snapshot;
+				}
+			}
+		}
+		done.set(true);
+		reader.join();
+		assertTrue(checked.get() > 0);
+		assertEquals(0, failures.get());
+	}
+}
@@ -0,0 +1,67 @@
+package generation;
+
+import java.util.Random;
+
+import generation.Order.Builder;
+
+/**
+ * Compares the time per query of the distance oracle with a breadth-first
+ * search per query for mazes of increasing skill level.
+ * 
+ * This is a benchmark to run by hand, not a test case. It runs a warm up
+ * round for each measurement to give the just-in-time compiler a chance
+ * and reports the average time per query in microseconds, e.g.,
+ * {@code java -cp bin:test generation.DistanceOracleBenchmark 1000}
+ * for 1000 queries per skill level.
+ */
+public class DistanceOracleBenchmark {
+
+	public static void main(String[] args) {
+		int queries = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		System.out.println("skill\twidth\theight\tlandmarks\tbuild ms\toracle us\tbfs us");
+		for (int skill = 0; skill < 16; skill += 3) {
+			Maze maze = createMaze(skill);
+			Floorplan floorplan = maze.getFloorplan();
+			int width = maze.getWidth();
+			int height = maze.getHeight();
+			int[] pairs = createPairs(queries, width, height);
+			long t0 = System.nanoTime();
+			DistanceOracle oracle = new DistanceOracle(floorplan);
+			long build = System.nanoTime() - t0;
+			Distance bfs = new Distance(width, height);
+			long sumOracle = 0;
+			long sumBfs = 0;
+			double oracleTime = 0;
+			double bfsTime = 0;
+			for (int round = 0; round < 2; round++) { // first round is the warm up
+				t0 = System.nanoTime();
+				for (int i = 0; i < pairs.length; i += 4) {
+					sumOracle += oracle.getDistance(pairs[i], pairs[i+1], pairs[i+2], pairs[i+3]);
+				}
+				oracleTime = (System.nanoTime() - t0) / 1000.0 / queries;
+				t0 = System.nanoTime();
+				for (int i = 0; i < pairs.length; i += 4) {
+					bfs.computeDistanceField(floorplan, new int[] {pairs[i]}, new int[] {pairs[i+1]}, false);
+					sumBfs += bfs.getDistanceValue(pairs[i+2], pairs[i+3]) - 1;
+				}
+				bfsTime = (System.nanoTime() - t0) / 1000.0 / queries;
+			}
+			if (sumOracle != sumBfs)
+				throw new IllegalStateException("oracle and search disagree for skill level " + skill);
+			System.out.printf("%d\t%d\t%d\t%d\t%.1f\t%.2f\t%.2f%n", skill, width, height, 
+					oracle.getNumberOfLandmarks(), build / 1e6, oracleTime, bfsTime);
+		}
+	}
+	private static Maze createMaze(int skill) {
+		return MazeFactoryTest.orderMaze(Builder.DFS, false, skill, 17, Floorplan::new);
+	}
+	private static int[] createPairs(int queries, int width, int height) {
+		Random random = new Random(23);
+		int[] result = new int[4*queries];
+		for (int i = 0; i < result.length; i += 2) {
+			result[i] = random.nextInt(width);
+			result[i+1] = random.nextInt(height);
+		}
+		return result;
+	}
+}
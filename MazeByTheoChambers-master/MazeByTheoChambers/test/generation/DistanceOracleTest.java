@@ -0,0 +1,138 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests the landmark based distance oracle against a breadth-first search
+ * from the source of each query.
+ */
+public class DistanceOracleTest {
+
+	private Maze maze;
+	private int width;
+	private int height;
+
+	/**
+	 * We use a maze with rooms such that there are cycles
+	 * and more than one path between positions.
+	 */
+	@Before
+	public void setUp() {
+		maze = MazeFactoryTest.orderMaze(Builder.DFS, false, 4, 3, Floorplan::new);
+		width = maze.getWidth();
+		height = maze.getHeight();
+	}
+	/**
+	 * Test case: distances between random pairs of positions
+	 * <p>
+	 * Method under test: getDistance, getLowerBound
+	 * <p>
+	 * Correct behavior: the oracle gives the number of steps of a
+	 * breadth-first search and the lower bound does not exceed it.
+	 */
+	@Test
+	public final void testDistancesMatchSearch() {
+		DistanceOracle oracle = new DistanceOracle(maze.getFloorplan());
+		assertTrue(oracle.getNumberOfLandmarks() > 1);
+		Distance d = new Distance(width, height);
+		Random random = new Random(5);
+		for (int i = 0; i < 50; i++) {
+			int ax = random.nextInt(width);
+			int ay = random.nextInt(height);
+			d.computeDistanceField(maze.getFloorplan(), new int[] {ax}, new int[] {ay}, false);
+			for (int j = 0; j < 20; j++) {
+				int bx = random.nextInt(width);
+				int by = random.nextInt(height);
+				int expected = d.getDistanceValue(bx, by) - 1;
+				assertEquals(expected, oracle.getDistance(ax, ay, bx, by));
+				assertTrue(oracle.getLowerBound(ax, ay, bx, by) <= expected);
+			}
+		}
+	}
+	/**
+	 * Test case: distances through the maze interface
+	 * <p>
+	 * Method under test: Maze.getDistanceBetween
+	 * <p>
+	 * Correct behavior: the distance to the exit is one less than the 
+	 * distance value and a position has distance 0 to itself.
+	 */
+	@Test
+	public final void testDistanceBetweenOnMaze() {
+		int[] exit = maze.getMazedists().getExitPosition();
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				assertEquals(maze.getDistanceToExit(x, y) - 1, maze.getDistanceBetween(x, y, exit[0], exit[1]));
+			}
+		}
+		assertEquals(0, maze.getDistanceBetween(1, 1, 1, 1));
+	}
+	/**
+	 * Test case: memory budget
+	 * <p>
+	 * Method under test: DistanceOracle(Floorplan, int)
+	 * <p>
+	 * Correct behavior: the number of landmarks follows the budget,
+	 * at least one landmark is used and distances are still correct.
+	 */
+	@Test
+	public final void testMemoryBudget() {
+		int perLandmark = 4*width*height;
+		assertEquals(3, new DistanceOracle(maze.getFloorplan(), 3*perLandmark).getNumberOfLandmarks());
+		DistanceOracle small = new DistanceOracle(maze.getFloorplan(), 0);
+		assertEquals(1, small.getNumberOfLandmarks());
+		int[] start = maze.getStartingPosition();
+		int[] exit = maze.getMazedists().getExitPosition();
+		assertEquals(maze.getDistanceToExit(start[0], start[1]) - 1, 
+				small.getDistance(start[0], start[1], exit[0], exit[1]));
+	}
+	/**
+	 * Test case: positions that are not connected
+	 * <p>
+	 * Method under test: getDistance
+	 * <p>
+	 * Correct behavior: the oracle reports Distance.INFINITY.
+	 */
+	@Test
+	public final void testUnreachable() {
+		// two rows without a connection
+		Floorplan plan = new Floorplan(4, 2);
+		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.South);
+		for (int x = 0; x < 4; x++) {
+			wallboard.setLocationDirection(x, 0, CardinalDirection.South);
+			plan.addWallboard(wallboard, true);
+		}
+		DistanceOracle oracle = new DistanceOracle(plan);
+		assertEquals(3, oracle.getDistance(0, 0, 3, 0));
+		assertEquals(Distance.INFINITY, oracle.getDistance(0, 0, 3, 1));
+	}
+	/**
+	 * Test case: an oracle that is no longer used
+	 * <p>
+	 * Method under test: getDistance
+	 * <p>
+	 * Correct behavior: search buffers of the querying thread do not keep
+	 * the oracle reachable, so it can be collected after a query.
+	 */
+	@Test
+	public final void testQueriedOracleCanBeCollected() throws InterruptedException {
+		DistanceOracle oracle = new DistanceOracle(maze.getFloorplan());
+		oracle.getDistance(0, 0, width-1, height-1);
+		WeakReference<DistanceOracle> reference = new WeakReference<>(oracle);
+		oracle = null;
+		for (int i = 0; i < 50 && null != reference.get(); i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertTrue(null == reference.get());
+	}
+}
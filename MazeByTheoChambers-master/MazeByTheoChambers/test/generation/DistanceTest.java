@@ -0,0 +1,394 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests the computation of distance values in the Distance class.
+ *
+ * Test cases work on small hand-crafted floorplans where the correct
+ * distances are easy to see as well as on generated mazes where the
+ * distances must satisfy the properties of a shortest path metric.
+ */
+public class DistanceTest {
+
+	private int width = 4;
+	private int height = 4;
+	private Floorplan floorplan; // setup makes this a width x height floorplan with a snake shaped path
+	private Distance distance;
+
+	/**
+	 * We create a (width x height) floorplan with all wallboards up
+	 * and carve a single path that goes row by row from (0,0) in a
+	 * snake like manner such that the last cell is (0,height-1).
+	 */
+	@Before
+	public void setUp() {
+		floorplan = new Floorplan(width, height);
+		floorplan.initialize();
+		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.East);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width-1; x++) {
+				wallboard.setLocationDirection(x, y, CardinalDirection.East);
+				floorplan.deleteWallboard(wallboard);
+			}
+			if (y < height-1) {
+				// connect rows at alternating ends
+				int x = (y % 2 == 0) ? width-1 : 0;
+				wallboard.setLocationDirection(x, y, CardinalDirection.South);
+				floorplan.deleteWallboard(wallboard);
+			}
+		}
+		distance = new Distance(width, height);
+	}
+	/**
+	 * Gives the position of (x,y) along the snake shaped path, starting with 0 at (0,0).
+	 */
+	private int getPositionOnPath(int x, int y) {
+		return y*width + ((y % 2 == 0) ? x : width-1-x);
+	}
+	/**
+	 * Test case: distances along a single path
+	 * <p>
+	 * Method under test: computeDistances(Floorplan)
+	 * <p>
+	 * Correct behavior: the exit is one end of the path, the start is the other,
+	 * and each cell has its number of steps on the path plus 1 as distance value.
+	 */
+	@Test
+	public final void testComputeDistancesOnPath() {
+		int[] exit = distance.computeDistances(floorplan);
+		// both ends of the path are on the border, the search from
+		// the center picks the end that is farthest away
+		int exitOnPath = getPositionOnPath(exit[0], exit[1]);
+		assertTrue(0 == exitOnPath || width*height-1 == exitOnPath);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				assertEquals(Math.abs(getPositionOnPath(x, y) - exitOnPath) + 1,
+						distance.getDistanceValue(x, y));
+			}
+		}
+		assertEquals(1, distance.getMinDistance());
+		assertEquals(width*height, distance.getMaxDistance());
+		int[] start = distance.getStartPosition();
+		assertEquals(width*height-1, Math.abs(getPositionOnPath(start[0], start[1]) - exitOnPath));
+		assertTrue(distance.isExitPosition(exit[0], exit[1]));
+	}
+	/**
+	 * Test case: repeated computation with the same object
+	 * <p>
+	 * Method under test: computeDistances(Floorplan)
+	 * <p>
+	 * Correct behavior: a second computation after opening a shortcut
+	 * yields values that are not larger and reflect the shortcut.
+	 */
+	@Test
+	public final void testComputeDistancesRepeatedly() {
+		distance.computeDistances(floorplan);
+		int before = distance.getMaxDistance();
+		// open a shortcut between the first and the last row along the west side
+		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.South);
+		for (int y = 0; y < height-1; y++) {
+			wallboard.setLocationDirection(0, y, CardinalDirection.South);
+			floorplan.deleteWallboard(wallboard);
+		}
+		distance.computeDistances(floorplan);
+		assertTrue(distance.getMaxDistance() < before);
+		checkShortestPathProperties(floorplan, distance, width, height);
+	}
+	/**
+	 * Test case: distances for generated mazes
+	 * <p>
+	 * Method under test: computeDistances(Floorplan)
+	 * <p>
+	 * Correct behavior: the distance values of a maze with rooms satisfy
+	 * the properties of a shortest path metric.
+	 */
+	@Test
+	public final void testComputeDistancesOnGeneratedMaze() {
+		Maze maze = MazeFactoryTest.orderMaze(Builder.DFS, false, 4, 13, Floorplan::new);
+		Distance d = new Distance(maze.getWidth(), maze.getHeight());
+		d.computeDistances(maze.getFloorplan());
+		checkShortestPathProperties(maze.getFloorplan(), d, maze.getWidth(), maze.getHeight());
+		int[] start = d.getStartPosition();
+		assertEquals(maze.getDistanceToExit(start[0], start[1]), d.getMaxDistance());
+	}
+	/**
+	 * Test case: distance field for two sources at both ends of the path
+	 * <p>
+	 * Method under test: computeDistanceField, getNearestSource
+	 * <p>
+	 * Correct behavior: each cell has the distance to the closer end
+	 * and carries the label of that end, ties go to the first source.
+	 */
+	@Test
+	public final void testComputeDistanceFieldTwoSources() {
+		int[] xs = {0, 0};
+		int[] ys = {0, height-1};
+		distance.computeDistanceField(floorplan, xs, ys, true);
+		int last = width*height-1; // position of (0,height-1) on path
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				int p = getPositionOnPath(x, y);
+				assertEquals(Math.min(p, last-p) + 1, distance.getDistanceValue(x, y));
+				assertEquals((p <= last-p) ? 0 : 1, distance.getNearestSource(x, y));
+			}
+		}
+		// second call without labels reuses the matrix, labels are no longer available
+		distance.computeDistanceField(floorplan, new int[] {width-1}, new int[] {0}, false);
+		assertEquals(1, distance.getDistanceValue(width-1, 0));
+		assertEquals(width, distance.getDistanceValue(0, 0));
+		assertEquals(-1, distance.getNearestSource(0, 0));
+	}
+	/**
+	 * Test case: distance field where some cells are cut off from all sources
+	 * <p>
+	 * Method under test: computeDistanceField, getNearestSource
+	 * <p>
+	 * Correct behavior: unreachable cells carry an infinite distance and label -1.
+	 */
+	@Test
+	public final void testComputeDistanceFieldUnreachable() {
+		// close the connection between the first and the second row
+		floorplan.addWallboard(new Wallboard(width-1, 0, CardinalDirection.South), true);
+		distance.computeDistanceField(floorplan, new int[] {0}, new int[] {0}, true);
+		for (int x = 0; x < width; x++) {
+			assertEquals(x + 1, distance.getDistanceValue(x, 0));
+			assertEquals(0, distance.getNearestSource(x, 0));
+			for (int y = 1; y < height; y++) {
+				assertEquals(Distance.INFINITY, distance.getDistanceValue(x, y));
+				assertEquals(-1, distance.getNearestSource(x, y));
+			}
+		}
+	}
+	/**
+	 * Test case: parallel computation on a large floorplan with wide frontiers
+	 * <p>
+	 * Method under test: computeDistances(Floorplan, Traversal)
+	 * <p>
+	 * Correct behavior: sequential and parallel computation deliver
+	 * the same distance values, exit and starting positions.
+	 */
+	@Test
+	public final void testComputeDistancesParallel() {
+		int w = 400;
+		int h = 300;
+		// no wallboards but for long vertical walls with a single gap
+		Floorplan open = new Floorplan(w, h);
+		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.East);
+		for (int x = 10; x < w; x += 10) {
+			int gap = (x * 7) % h;
+			for (int y = 0; y < h; y++) {
+				if (y != gap) {
+					wallboard.setLocationDirection(x, y, CardinalDirection.East);
+					open.addWallboard(wallboard, true);
+				}
+			}
+		}
+		Distance sequential = new Distance(w, h);
+		Distance parallel = new Distance(w, h);
+		int[] exitSequential = sequential.computeDistances(open, Distance.Traversal.Sequential);
+		int[] exitParallel = parallel.computeDistances(open, Distance.Traversal.Parallel);
+		assertEquals(exitSequential[0], exitParallel[0]);
+		assertEquals(exitSequential[1], exitParallel[1]);
+		assertEquals(sequential.getStartPosition()[0], parallel.getStartPosition()[0]);
+		assertEquals(sequential.getStartPosition()[1], parallel.getStartPosition()[1]);
+		for (int x = 0; x < w; x++) {
+			for (int y = 0; y < h; y++) {
+				assertEquals(sequential.getDistanceValue(x, y), parallel.getDistanceValue(x, y));
+			}
+		}
+	}
+	/**
+	 * Test case: parallel computation selected on the factory
+	 * <p>
+	 * Method under test: MazeFactory.setDistanceTraversal
+	 * <p>
+	 * Correct behavior: the delivered maze has the same distances 
+	 * as one that is computed sequentially.
+	 */
+	@Test
+	public final void testParallelTraversalOnFactory() {
+		MazeFactory factory = new MazeFactory();
+		factory.setDistanceTraversal(Distance.Traversal.Parallel);
+		Maze maze = MazeFactoryTest.orderMaze(factory, Builder.Prim, false, 3, 5);
+		Distance d = new Distance(maze.getWidth(), maze.getHeight());
+		d.computeDistances(maze.getFloorplan());
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				assertEquals(d.getDistanceValue(x, y), maze.getDistanceToExit(x, y));
+			}
+		}
+	}
+	/**
+	 * Test case: incremental repair after random wallboard edits on a generated maze
+	 * <p>
+	 * Method under test: repairAfterWallboardDeleted, repairAfterWallboardAdded
+	 * <p>
+	 * Correct behavior: after each edit, the repaired values are the same
+	 * as the values of a full computation from the same exit position,
+	 * including positions that are cut off from the exit.
+	 */
+	@Test
+	public final void testRepairAfterWallboardEdits() {
+		Maze maze = MazeFactoryTest.orderMaze(Builder.DFS, true, 3, 7, Floorplan::new);
+		int w = maze.getWidth();
+		int h = maze.getHeight();
+		Floorplan plan = maze.getFloorplan();
+		Distance d = new Distance(w, h);
+		int[] exit = d.computeDistances(plan);
+		Distance expected = new Distance(w, h);
+		Random random = new Random(11);
+		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.East);
+		for (int i = 0; i < 400; i++) {
+			// pick an internal wallboard and toggle it
+			CardinalDirection cd = random.nextBoolean() ? CardinalDirection.East : CardinalDirection.South;
+			int x = random.nextInt(CardinalDirection.East == cd ? w-1 : w);
+			int y = random.nextInt(CardinalDirection.South == cd ? h-1 : h);
+			wallboard.setLocationDirection(x, y, cd);
+			if (plan.hasWall(x, y, cd)) {
+				plan.deleteWallboard(wallboard);
+				d.repairAfterWallboardDeleted(plan, wallboard);
+			}
+			else {
+				plan.addWallboard(wallboard, true);
+				d.repairAfterWallboardAdded(plan, wallboard);
+			}
+			expected.computeDistanceField(plan, new int[] {exit[0]}, new int[] {exit[1]}, false);
+			for (int px = 0; px < w; px++) {
+				for (int py = 0; py < h; py++) {
+					assertEquals(expected.getDistanceValue(px, py), d.getDistanceValue(px, py));
+				}
+			}
+		}
+	}
+	/**
+	 * Test case: compact storage for small and large distance values
+	 * <p>
+	 * Method under test: compact, getDistanceValue, getAllDistanceValues
+	 * <p>
+	 * Correct behavior: values, infinite values, exit and starting position 
+	 * remain the same, a new computation works on compact values.
+	 */
+	@Test
+	public final void testCompact() {
+		// small values fit into a byte, close the connection to the second row
+		floorplan.addWallboard(new Wallboard(width-1, 0, CardinalDirection.South), true);
+		distance.computeDistanceField(floorplan, new int[] {0}, new int[] {0}, false);
+		int[][] expected = copy(distance.getAllDistanceValues());
+		distance.compact();
+		assertTrue(distance.isCompact());
+		assertEqualValues(expected, distance);
+		assertEquals(Distance.INFINITY, distance.getDistanceValue(0, 1));
+		// a new computation goes back to regular storage
+		floorplan.deleteWallboard(new Wallboard(width-1, 0, CardinalDirection.South));
+		distance.computeDistances(floorplan);
+		assertFalse(distance.isCompact());
+		checkShortestPathProperties(floorplan, distance, width, height);
+		// a long single path needs values beyond a byte and beyond a char
+		for (int w : new int[] {20, 300}) {
+			int h = 240;
+			Floorplan path = new Floorplan(w, h);
+			path.initialize();
+			Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.South);
+			for (int x = 0; x < w; x++) {
+				for (int y = 0; y < h-1; y++) {
+					wallboard.setLocationDirection(x, y, CardinalDirection.South);
+					path.deleteWallboard(wallboard);
+				}
+				if (x < w-1) {
+					// connect columns at alternating ends
+					wallboard.setLocationDirection(x, (x % 2 == 0) ? h-1 : 0, CardinalDirection.East);
+					path.deleteWallboard(wallboard);
+				}
+			}
+			Distance d = new Distance(w, h);
+			d.computeDistances(path);
+			int[] start = d.getStartPosition().clone();
+			int[] exit = d.getExitPosition().clone();
+			expected = copy(d.getAllDistanceValues());
+			d.compact();
+			assertEqualValues(expected, d);
+			assertEquals(w*h, d.getMaxDistance());
+			assertEquals(start[0], d.getStartPosition()[0]);
+			assertEquals(start[1], d.getStartPosition()[1]);
+			assertTrue(d.isExitPosition(exit[0], exit[1]));
+		}
+	}
+	/**
+	 * Test case: compact storage selected on the factory
+	 * <p>
+	 * Method under test: MazeFactory.setCompactDistances
+	 * <p>
+	 * Correct behavior: the delivered maze has compact distances 
+	 * and a solution path from the most remote position.
+	 */
+	@Test
+	public final void testCompactOnFactory() {
+		MazeFactory factory = new MazeFactory();
+		factory.setCompactDistances(true);
+		Maze maze = MazeFactoryTest.orderMaze(factory, Builder.DFS, false, 2, 8);
+		assertTrue(maze.getMazedists().isCompact());
+		checkShortestPathProperties(maze.getFloorplan(), maze.getMazedists(), maze.getWidth(), maze.getHeight());
+		int[] start = maze.getMazedists().getStartPosition();
+		int steps = 0;
+		for (Iterator<int[]> path = maze.getSolutionPath(start[0], start[1]); path.hasNext(); path.next())
+			steps++;
+		assertEquals(maze.getMazedists().getMaxDistance(), steps);
+	}
+	private static int[][] copy(int[][] values) {
+		int[][] result = new int[values.length][];
+		for (int x = 0; x < values.length; x++)
+			result[x] = values[x].clone();
+		return result;
+	}
+	private static void assertEqualValues(int[][] expected, Distance d) {
+		int[][] view = d.getAllDistanceValues();
+		for (int x = 0; x < expected.length; x++) {
+			for (int y = 0; y < expected[x].length; y++) {
+				assertEquals(expected[x][y], d.getDistanceValue(x, y));
+				assertEquals(expected[x][y], view[x][y]);
+			}
+		}
+	}
+	/**
+	 * Checks that the exit is the only position with distance 1,
+	 * that adjacent reachable positions differ by at most 1 and
+	 * that every other position has a neighbor that is one step closer.
+	 */
+	static void checkShortestPathProperties(Floorplan floorplan, Distance d, int width, int height) {
+		int ones = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				int value = d.getDistanceValue(x, y);
+				if (1 == value) {
+					ones++;
+					continue;
+				}
+				boolean closer = false;
+				for (CardinalDirection cd : CardinalDirection.values()) {
+					int[] dir = cd.getDirection();
+					int nx = x + dir[0];
+					int ny = y + dir[1];
+					if (floorplan.hasWall(x, y, cd) || nx < 0 || nx >= width || ny < 0 || ny >= height)
+						continue;
+					int neighbor = d.getDistanceValue(nx, ny);
+					assertTrue(Math.abs(neighbor - value) <= 1);
+					if (neighbor == value - 1)
+						closer = true;
+				}
+				assertTrue(closer);
+			}
+		}
+		assertEquals(1, ones);
+	}
+}
@@ -0,0 +1,149 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests recording, replay and undo of changes to a floorplan.
+ */
+public class FloorplanJournalTest {
+	private static final int WIDTH = 30;
+	private static final int HEIGHT = 20;
+
+	/**
+	 * Test case: undo changes of wallboards and rooms
+	 * <p>
+	 * Method under test: startJournal, undoTo
+	 * <p>
+	 * Correct behavior: the floorplan returns to the content and
+	 * fingerprint it had at the mark, undo to the current mark has no effect.
+	 */
+	@Test
+	public final void testUndo() {
+		Floorplan floorplan = new Floorplan(WIDTH, HEIGHT);
+		FloorplanJournal journal = floorplan.startJournal(1 << 16);
+		assertTrue(journal == floorplan.getJournal());
+		floorplan.initialize();
+		Floorplan initialized = new Floorplan(WIDTH, HEIGHT);
+		initialized.initialize();
+		assertTrue(initialized.equals(floorplan));
+		final long mark = journal.mark();
+		assertEquals(initialized.fingerprint(), floorplan.fingerprint());
+		change(floorplan, new Random(1));
+		final long later = journal.mark();
+		assertTrue(later > mark);
+		assertFalse(initialized.equals(floorplan));
+		floorplan.undoTo(later);
+		assertEquals(later, journal.mark());
+		floorplan.undoTo(mark);
+		assertEquals(mark, journal.mark());
+		assertTrue(initialized.equals(floorplan));
+		assertEquals(initialized.fingerprint(), floorplan.fingerprint());
+		floorplan.undoTo(0);
+		assertTrue(new Floorplan(WIDTH, HEIGHT).equals(floorplan));
+		floorplan.stopJournal();
+		assertTrue(null == floorplan.getJournal());
+		try {
+			floorplan.undoTo(0);
+			fail("undo without journal must fail");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+	/**
+	 * Test case: derived values catch up with changes
+	 * <p>
+	 * Method under test: replay, addListener
+	 * <p>
+	 * Correct behavior: a copy of the cells that follows the journal
+	 * by replay or as a listener has the same values as the floorplan,
+	 * also after an undo.
+	 */
+	@Test
+	public final void testReplayAndListener() {
+		Floorplan floorplan = new Floorplan(WIDTH, HEIGHT);
+		FloorplanJournal journal = floorplan.startJournal(1 << 16);
+		final int[] replayed = new int[WIDTH*HEIGHT];
+		final int[] listened = new int[WIDTH*HEIGHT];
+		journal.addListener((index, bitmask, set) -> apply(listened, index, bitmask, set));
+		FloorplanJournal.Listener replica = (index, bitmask, set) -> apply(replayed, index, bitmask, set);
+		floorplan.initialize();
+		long mark = journal.replay(0, replica);
+		final long initialized = mark;
+		change(floorplan, new Random(2));
+		mark = journal.replay(mark, replica);
+		assertSameCells(floorplan, replayed);
+		assertSameCells(floorplan, listened);
+		floorplan.undoTo(initialized);
+		assertSameCells(floorplan, listened);
+		change(floorplan, new Random(3));
+		assertSameCells(floorplan, listened);
+	}
+	/**
+	 * Test case: more changes than the journal holds
+	 * <p>
+	 * Method under test: getOldestMark, isAvailable, undoTo
+	 * <p>
+	 * Correct behavior: old marks are no longer available, also after an undo,
+	 * recent marks can be undone.
+	 */
+	@Test
+	public final void testOverflow() {
+		Floorplan floorplan = new Floorplan(WIDTH, HEIGHT);
+		FloorplanJournal journal = floorplan.startJournal(5);
+		assertEquals(8, journal.getCapacity());
+		for (int x = 0; x < 10; x++)
+			floorplan.setInRoomToOne(x, 0);
+		floorplan.setInRoomToOne(0, 0); // no change, not recorded
+		assertEquals(10, journal.mark());
+		assertEquals(2, journal.getOldestMark());
+		assertFalse(journal.isAvailable(1));
+		floorplan.undoTo(6);
+		assertFalse(floorplan.isInRoom(6, 0));
+		assertTrue(floorplan.isInRoom(5, 0));
+		assertEquals(2, journal.getOldestMark());
+		try {
+			floorplan.undoTo(0);
+			fail("overwritten entries can not be undone");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		floorplan.undoTo(2);
+		assertTrue(floorplan.isInRoom(1, 0));
+		assertFalse(floorplan.isInRoom(2, 0));
+	}
+	/**
+	 * Deletes wallboards, marks a room and visits cells at random.
+	 */
+	private static void change(Floorplan floorplan, Random random) {
+		floorplan.markAreaAsRoom(4, 3, 5, 5, 8, 7);
+		for (int i = 0; i < 200; i++) {
+			int x = 1 + random.nextInt(WIDTH-2);
+			int y = 1 + random.nextInt(HEIGHT-2);
+			CardinalDirection dir = CardinalDirection.values()[random.nextInt(4)];
+			floorplan.deleteWallboard(new Wallboard(x, y, dir));
+			floorplan.setCellAsVisited(x, y);
+		}
+		floorplan.setExitPosition(WIDTH-1, HEIGHT/2);
+	}
+	private static void apply(int[] cells, int index, int bitmask, boolean set) {
+		if (set) {
+			assertEquals(0, cells[index] & bitmask);
+			cells[index] |= bitmask;
+		}
+		else {
+			assertEquals(bitmask, cells[index] & bitmask);
+			cells[index] &= ~bitmask;
+		}
+	}
+	private static void assertSameCells(Floorplan floorplan, int[] cells) {
+		for (int i = 0; i < WIDTH*HEIGHT; i++)
+			assertEquals(floorplan.getValueOfCell(i), cells[i]);
+	}
+}
@@ -0,0 +1,196 @@
+package generation;
+
+import java.util.Random;
+
+/**
+ * Compares the former cell layout of the Floorplan, an int[][] matrix
+ * with one array per column, against the flat row-major int[] array
+ * that the Floorplan uses now.
+ *
+ * This is a benchmark to run by hand, not a test case.
+ * Each layout runs three workloads that resemble how the maze
+ * is used: generation carves passages with a randomized depth-first
+ * search, distance runs a breadth-first search, and rendering checks
+ * all four wallboards of each cell row by row as the map drawing does.
+ * The last column runs the rendering workload on a Floorplan object.
+ * Each measurement is repeated after a warm up round to give the
+ * just-in-time compiler a chance. Times are in milliseconds, e.g.,
+ * {@code java -cp bin:test generation.FloorplanLayoutBenchmark 400 320}
+ * for a 400x320 maze.
+ */
+public class FloorplanLayoutBenchmark {
+
+	/**
+	 * Minimal cell storage with the operations the workloads need.
+	 */
+	private abstract static class Layout {
+		final int width;
+		final int height;
+		Layout(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+		abstract int get(int x, int y);
+		abstract void set(int x, int y, int bits);
+		abstract void clear(int x, int y, int bits);
+	}
+	private static final class Nested extends Layout {
+		private final int[][] cells;
+		Nested(int width, int height) {
+			super(width, height);
+			cells = new int[width][height];
+		}
+		int get(int x, int y) { return cells[x][y]; }
+		void set(int x, int y, int bits) { cells[x][y] |= bits; }
+		void clear(int x, int y, int bits) { cells[x][y] &= ~bits; }
+	}
+	private static final class Flat extends Layout {
+		private final int[] cells;
+		Flat(int width, int height) {
+			super(width, height);
+			cells = new int[width*height];
+		}
+		int get(int x, int y) { return cells[y*width + x]; }
+		void set(int x, int y, int bits) { cells[y*width + x] |= bits; }
+		void clear(int x, int y, int bits) { cells[y*width + x] &= ~bits; }
+	}
+
+	private static final int[] DX = { 0, 1, 0, -1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+	// wallboard bits for north, east, south, west and the opposite side
+	private static final int[] WALL = { Floorplan.CW_TOP, Floorplan.CW_RIGHT, Floorplan.CW_BOT, Floorplan.CW_LEFT };
+	private static final int[] OPPOSITE = { Floorplan.CW_BOT, Floorplan.CW_LEFT, Floorplan.CW_TOP, Floorplan.CW_RIGHT };
+
+	public static void main(String[] args) {
+		int width = (args.length > 1) ? Integer.parseInt(args[0]) : 300;
+		int height = (args.length > 1) ? Integer.parseInt(args[1]) : 240;
+		System.out.println("layout\tgenerate ms\tdistance ms\trender ms");
+		for (int round = 0; round < 2; round++) { // first round is the warm up
+			run("int[][]", new Nested(width, height), round);
+			run("int[]", new Flat(width, height), round);
+		}
+		Floorplan floorplan = new Floorplan(width, height);
+		floorplan.initialize();
+		long sum = 0;
+		long t0 = 0;
+		for (int round = 0; round < 2; round++) {
+			t0 = System.nanoTime();
+			for (int i = 0; i < 10; i++)
+				sum += render(floorplan);
+		}
+		System.out.printf("Floorplan\t\t\t%.2f\t(%d)%n", (System.nanoTime() - t0) / 1e7, sum);
+	}
+	private static void run(String name, Layout layout, int round) {
+		long t0 = System.nanoTime();
+		generate(layout, new Random(1));
+		double generate = (System.nanoTime() - t0) / 1e6;
+		t0 = System.nanoTime();
+		long sum = 0;
+		for (int i = 0; i < 10; i++)
+			sum += distance(layout);
+		double distance = (System.nanoTime() - t0) / 1e7;
+		t0 = System.nanoTime();
+		for (int i = 0; i < 10; i++)
+			sum += render(layout);
+		double render = (System.nanoTime() - t0) / 1e7;
+		if (round > 0)
+			System.out.printf("%s\t%.2f\t%.2f\t%.2f\t(%d)%n", name, generate, distance, render, sum);
+	}
+	/**
+	 * Puts up all wallboards and carves a perfect maze with a depth-first search.
+	 */
+	private static void generate(Layout layout, Random random) {
+		final int w = layout.width;
+		final int h = layout.height;
+		for (int x = 0; x < w; x++)
+			for (int y = 0; y < h; y++)
+				layout.set(x, y, Floorplan.CW_ALL | Floorplan.CW_VISITED);
+		int[] stack = new int[w*h];
+		int top = 0;
+		stack[top++] = 0;
+		layout.clear(0, 0, Floorplan.CW_VISITED);
+		int[] candidates = new int[4];
+		while (top > 0) {
+			int pos = stack[top-1];
+			int x = pos % w;
+			int y = pos / w;
+			int n = 0;
+			for (int d = 0; d < 4; d++) {
+				int nx = x + DX[d];
+				int ny = y + DY[d];
+				if (0 <= nx && nx < w && 0 <= ny && ny < h && (layout.get(nx, ny) & Floorplan.CW_VISITED) != 0)
+					candidates[n++] = d;
+			}
+			if (0 == n) {
+				top--;
+				continue;
+			}
+			int d = candidates[random.nextInt(n)];
+			int nx = x + DX[d];
+			int ny = y + DY[d];
+			layout.clear(x, y, WALL[d]);
+			layout.clear(nx, ny, OPPOSITE[d] | Floorplan.CW_VISITED);
+			stack[top++] = ny*w + nx;
+		}
+	}
+	/**
+	 * Breadth-first search from the top-left corner.
+	 * @return the sum of all distances
+	 */
+	private static long distance(Layout layout) {
+		final int w = layout.width;
+		final int h = layout.height;
+		int[] dists = new int[w*h];
+		int[] queue = new int[w*h];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+		dists[0] = 1;
+		long sum = 0;
+		while (head < tail) {
+			int pos = queue[head++];
+			int x = pos % w;
+			int y = pos / w;
+			int value = layout.get(x, y);
+			sum += dists[pos];
+			for (int d = 0; d < 4; d++) {
+				int nx = x + DX[d];
+				int ny = y + DY[d];
+				if ((value & WALL[d]) == 0 && 0 <= nx && nx < w && 0 <= ny && ny < h && 0 == dists[ny*w + nx]) {
+					dists[ny*w + nx] = dists[pos] + 1;
+					queue[tail++] = ny*w + nx;
+				}
+			}
+		}
+		return sum;
+	}
+	/**
+	 * Checks all wallboards row by row.
+	 * @return number of wallboards
+	 */
+	private static long render(Layout layout) {
+		long count = 0;
+		for (int y = 0; y < layout.height; y++) {
+			for (int x = 0; x < layout.width; x++) {
+				int value = layout.get(x, y);
+				for (int d = 0; d < 4; d++) {
+					if ((value & WALL[d]) != 0)
+						count++;
+				}
+			}
+		}
+		return count;
+	}
+	private static long render(Floorplan floorplan) {
+		long count = 0;
+		for (int y = 0; y < floorplan.getHeight(); y++) {
+			for (int x = 0; x < floorplan.getWidth(); x++) {
+				for (CardinalDirection cd : CardinalDirection.values()) {
+					if (floorplan.hasWall(x, y, cd))
+						count++;
+				}
+			}
+		}
+		return count;
+	}
+}
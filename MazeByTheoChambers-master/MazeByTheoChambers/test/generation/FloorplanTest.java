@@ -544,4 +544,125 @@ public class FloorplanTest{
 		assertEquals(cell1.getCWConstantForDirection(CardinalDirection.North),Floorplan.CW_TOP);
 	}
 
+	/**
+	 * Test case: fingerprint along a sequence of random changes
+	 * <p>
+	 * Method under test: fingerprint(), hashCode()
+	 * <p>
+	 * Correct behavior: the incrementally maintained fingerprint matches
+	 * the one computed from scratch for a copy with different storage,
+	 * it changes with the content and returns to its value if a change is undone.
+	 */
+	@Test
+	public final void testFingerprint() {
+		Floorplan other = new Floorplan(width, height);
+		assertEquals(floorplan.fingerprint(), other.fingerprint());
+		assertEquals(floorplan.hashCode(), other.hashCode());
+		assertFalse(floorplan.fingerprint() == floorplan1.fingerprint()); // dimensions differ
+		floorplan.initialize();
+		final long initial = floorplan.fingerprint();
+		assertFalse(initial == other.fingerprint());
+		java.util.Random random = new java.util.Random(4);
+		for (int i = 0; i < 200; i++) {
+			Wallboard wallboard = new Wallboard(random.nextInt(width), random.nextInt(height),
+					CardinalDirection.values()[random.nextInt(4)]);
+			final int[] d = wallboard.getDirection().getDirection();
+			final int nx = wallboard.getX() + d[0];
+			final int ny = wallboard.getY() + d[1];
+			final boolean inside = 0 <= nx && nx < width && 0 <= ny && ny < height;
+			switch (inside ? random.nextInt(4) : 2 + random.nextInt(2)) {
+			case 0:
+				floorplan.deleteWallboard(wallboard);
+				break;
+			case 1:
+				floorplan.addWallboard(wallboard, true);
+				break;
+			case 2:
+				floorplan.setCellAsVisited(wallboard.getX(), wallboard.getY());
+				break;
+			default:
+				floorplan.setInRoomToOne(wallboard.getX(), wallboard.getY());
+				break;
+			}
+			Floorplan copy = new OffHeapFloorplan(floorplan);
+			assertEquals(copy.fingerprint(), floorplan.fingerprint());
+			assertTrue(floorplan.equals(copy));
+		}
+		other.initialize();
+		other.markAreaAsRoom(2, 2, 1, 1, 2, 2);
+		Floorplan copy = new BitPlaneFloorplan(other);
+		assertEquals(copy.fingerprint(), other.fingerprint());
+		java.util.Set<Floorplan> set = new java.util.HashSet<Floorplan>();
+		set.add(other);
+		assertTrue(set.contains(copy));
+		assertFalse(set.contains(floorplan));
+	}
+	/**
+	 * Test case: index over cells in rooms along a sequence of random changes
+	 * <p>
+	 * Method under test: countCellsInRoom(), areaOverlapsWithRoom()
+	 * <p>
+	 * Correct behavior: counts match the number of cells that isInRoom reports
+	 * for random areas, also for rows wider than 64 cells, for a floorplan with
+	 * a different storage and after an undo with the journal.
+	 */
+	@Test
+	public final void testCountCellsInRoom() {
+		final int w = 140;
+		final int h = 30;
+		java.util.Random random = new java.util.Random(4);
+		Floorplan heap = new Floorplan(w, h);
+		heap.initialize();
+		OffHeapFloorplan offHeap = new OffHeapFloorplan(w, h);
+		offHeap.initialize();
+		FloorplanJournal journal = heap.startJournal(1 << 16);
+		long mark = 0;
+		for (int i = 0; i < 40; i++) {
+			if (20 == i)
+				mark = journal.mark();
+			if (0 == i % 4) {
+				int x = random.nextInt(w);
+				int y = random.nextInt(h);
+				heap.setInRoomToOne(x, y);
+				offHeap.setInRoomToOne(x, y);
+			}
+			else {
+				int rx = 1 + random.nextInt(w-10);
+				int ry = 1 + random.nextInt(h-10);
+				int rw = 3 + random.nextInt(6);
+				int rh = 3 + random.nextInt(6);
+				if (!heap.areaOverlapsWithRoom(rx, ry, rx+rw-1, ry+rh-1)) {
+					assertFalse(offHeap.areaOverlapsWithRoom(rx, ry, rx+rw-1, ry+rh-1));
+					heap.markAreaAsRoom(rw, rh, rx, ry, rx+rw-1, ry+rh-1);
+					offHeap.markAreaAsRoom(rw, rh, rx, ry, rx+rw-1, ry+rh-1);
+				}
+			}
+			assertSameRoomCounts(heap, random);
+			assertSameRoomCounts(offHeap, random);
+		}
+		assertEquals(countCellsInRoom(heap, 0, 0, w-1, h-1), heap.countCellsInRoom(0, 0, w-1, h-1));
+		heap.undoTo(mark);
+		assertSameRoomCounts(heap, random);
+		assertTrue(heap.countCellsInRoom(0, 0, w-1, h-1) < offHeap.countCellsInRoom(0, 0, w-1, h-1));
+		offHeap.close();
+	}
+	private void assertSameRoomCounts(Floorplan floorplan, java.util.Random random) {
+		for (int i = 0; i < 50; i++) {
+			int rx = random.nextInt(floorplan.getWidth());
+			int ry = random.nextInt(floorplan.getHeight());
+			int rxl = rx + random.nextInt(floorplan.getWidth() - rx);
+			int ryl = ry + random.nextInt(floorplan.getHeight() - ry);
+			assertEquals(countCellsInRoom(floorplan, rx, ry, rxl, ryl), floorplan.countCellsInRoom(rx, ry, rxl, ryl));
+		}
+	}
+	private int countCellsInRoom(Floorplan floorplan, int rx, int ry, int rxl, int ryl) {
+		int result = 0;
+		for (int x = rx; x <= rxl; x++) {
+			for (int y = ry; y <= ryl; y++) {
+				if (floorplan.isInRoom(x, y))
+					result++;
+			}
+		}
+		return result;
+	}
 }
@@ -0,0 +1,97 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests that a floorplan can be generated into a file and read back.
+ */
+public class MappedFloorplanTest {
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("floorplan", ".maze");
+	}
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+	/**
+	 * Test case: generate a maze into a file, then open the file for reading
+	 * <p>
+	 * Method under test: provider, open, close
+	 * <p>
+	 * Correct behavior: the file holds the same floorplan as a maze
+	 * generated on the heap with the same seed, it can not be changed.
+	 */
+	@Test
+	public final void testGenerateAndOpen() throws IOException {
+		Floorplan expected = generate(Floorplan::new);
+		Floorplan generated = generate(MappedFloorplan.provider(file));
+		assertTrue(generated instanceof MappedFloorplan);
+		assertTrue(expected.equals(generated));
+		((MappedFloorplan)generated).close();
+		assertEquals(MappedFloorplan.HEADER_BYTES + 4L*expected.getWidth()*expected.getHeight(), Files.size(file));
+		try (MappedFloorplan floorplan = MappedFloorplan.open(file, false)) {
+			assertFalse(floorplan.isWritable());
+			assertEquals(expected.getWidth(), floorplan.getWidth());
+			assertEquals(expected.getHeight(), floorplan.getHeight());
+			assertTrue(expected.equals(floorplan));
+			try {
+				floorplan.setCellAsVisited(0, 0);
+				fail("read only floorplan must not change");
+			} catch (ReadOnlyBufferException e) {
+				// expected
+			}
+		}
+	}
+	/**
+	 * Test case: change a floorplan that is opened for writing
+	 * <p>
+	 * Method under test: create, open, flush
+	 * <p>
+	 * Correct behavior: the change is visible after opening the file again,
+	 * a file that is not a floorplan is rejected.
+	 */
+	@Test
+	public final void testWriteThrough() throws IOException {
+		try (MappedFloorplan floorplan = MappedFloorplan.create(file, 9, 4)) {
+			floorplan.initialize();
+		}
+		try (MappedFloorplan floorplan = MappedFloorplan.open(file, true)) {
+			assertTrue(floorplan.isWritable());
+			assertTrue(floorplan.hasWall(8, 3, CardinalDirection.East));
+			floorplan.setExitPosition(8, 3);
+			floorplan.flush();
+		}
+		try (MappedFloorplan floorplan = MappedFloorplan.open(file, false)) {
+			assertTrue(floorplan.isExitPosition(8, 3));
+			assertTrue(floorplan.hasWall(7, 3, CardinalDirection.South));
+		}
+		Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+		try {
+			MappedFloorplan.open(file, false);
+			fail("file without a floorplan must be rejected");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+	private Floorplan generate(MazeBuilder.FloorplanProvider provider) {
+		return MazeFactoryTest.orderMaze(Builder.Prim, false, 4, 23, provider).getFloorplan();
+	}
+}
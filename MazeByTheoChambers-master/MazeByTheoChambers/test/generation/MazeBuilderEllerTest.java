@@ -0,0 +1,66 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Runs all tests of MazeFactoryTest with Eller's algorithm,
+ * i.e., on a maze with rooms, and adds tests for a perfect maze
+ * and for the rows the builder reports as finished.
+ */
+public class MazeBuilderEllerTest extends MazeFactoryTest {
+
+	@Override
+	protected Builder getBuilder() {
+		return Builder.Eller;
+	}
+	/**
+	 * Test case: a maze without rooms is a spanning tree
+	 * <p>
+	 * Method under test: generatePathways
+	 * <p>
+	 * Correct behavior: every cell is reachable from the exit and
+	 * there is one opening less than there are cells, so there are no loops.
+	 */
+	@Test
+	public final void testPerfectMaze() {
+		assertPerfectMaze(orderMaze(Builder.Eller, true, 11, 3, Floorplan::new));
+	}
+	/**
+	 * Test case: rows are finished from top to bottom
+	 * <p>
+	 * Method under test: setRowListener
+	 * <p>
+	 * Correct behavior: the listener hears about each row once and in order,
+	 * and a row does not change once it is finished.
+	 */
+	@Test
+	public final void testRowListener() {
+		StubOrder order = new StubOrder();
+		order.setBuildOption(Builder.Eller);
+		order.setRoomOption(false);
+		order.setSkillLevel(6);
+		order.set_seed(11);
+		MazeBuilderEller builder = new MazeBuilderEller();
+		final int[][] rows = new int[gui.Constants.SKILL_Y[6]][];
+		builder.setRowListener((floorplan, y) -> {
+			for (int i = 0; i < rows.length; i++)
+				assertEquals(i < y, null != rows[i]);
+			rows[y] = new int[floorplan.getWidth()];
+			for (int x = 0; x < floorplan.getWidth(); x++)
+				rows[y][x] = floorplan.getValueOfCell(x, y);
+		});
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		assertTrue(builder.generateRooms() > 0);
+		builder.generatePathways();
+		for (int y = 0; y < rows.length; y++) {
+			for (int x = 0; x < rows[y].length; x++)
+				assertEquals(rows[y][x], builder.floorplan.getValueOfCell(x, y));
+		}
+	}
+}
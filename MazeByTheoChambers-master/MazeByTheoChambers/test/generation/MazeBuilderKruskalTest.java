@@ -165,6 +165,14 @@ public class MazeBuilderKruskalTest extends MazeFactoryTest {
 		//count !=0 currently as I am testing for mazes generated with rooms 
 	assertTrue(count!=0);
 	}
+	/**Kruskal on a large maze without rooms must give a perfect maze.
+	 * A spanning tree over all cells has one opening less than there are cells,
+	 * and with every cell reachable from the exit there can be no loops.
+	 */
+	@Test
+	public void test_large_perfect_maze() {
+		assertPerfectMaze(orderMaze(Builder.Kruskal, true, 11, 3, Floorplan::new));
+	}
 	//this is the only real big change
 	//adding tests to cover tree class used in MazeBuilderKruskal
 	
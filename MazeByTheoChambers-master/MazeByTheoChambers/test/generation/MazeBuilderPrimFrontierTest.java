@@ -0,0 +1,56 @@
+package generation;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests Prim's algorithm with a frontier of primitive ints.
+ * The builder is not available through the MazeFactory,
+ * so tests run it directly on the calling thread.
+ */
+public class MazeBuilderPrimFrontierTest {
+
+	/**
+	 * Test case: a maze without rooms is a spanning tree
+	 * <p>
+	 * Method under test: generatePathways
+	 * <p>
+	 * Correct behavior: every cell is reachable from the exit and
+	 * there is one opening less than there are cells, so there are no loops.
+	 */
+	@Test
+	public final void testPerfectMaze() {
+		for (int seed = 0; seed < 5; seed++)
+			MazeFactoryTest.assertPerfectMaze(build(9, true, seed));
+	}
+	/**
+	 * Test case: a maze with rooms
+	 * <p>
+	 * Method under test: generatePathways
+	 * <p>
+	 * Correct behavior: every cell is reachable from the exit.
+	 */
+	@Test
+	public final void testMazeWithRooms() {
+		Maze maze = build(5, false, 7);
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				assertTrue(maze.getDistanceToExit(x, y) != Distance.INFINITY);
+			}
+		}
+	}
+	private static Maze build(int skill, boolean perfect, int seed) {
+		StubOrder order = new StubOrder();
+		order.setBuildOption(Order.Builder.Prim);
+		order.setRoomOption(perfect);
+		order.setSkillLevel(skill);
+		order.set_seed(seed);
+		MazeBuilder builder = new MazeBuilderPrimFrontier();
+		builder.buildOrder(order);
+		builder.run();
+		assertNotNull(order.getMaze());
+		return order.getMaze();
+	}
+}
@@ -0,0 +1,77 @@
+package generation;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Tests the recursive division builder.
+ * The builder is not available through the MazeFactory,
+ * so tests run it directly on the calling thread.
+ */
+public class MazeBuilderRecursiveDivisionTest {
+
+	/**
+	 * Test case: a maze is a spanning tree, also if the order asks for rooms
+	 * <p>
+	 * Method under test: run
+	 * <p>
+	 * Correct behavior: there are no rooms, every cell is reachable from the exit and
+	 * there is one opening less than there are cells, so there are no loops.
+	 */
+	@Test
+	public final void testPerfectMaze() {
+		StubOrder order = new StubOrder();
+		order.setRoomOption(false);
+		order.setSkillLevel(9);
+		order.set_seed(5);
+		MazeBuilder builder = new MazeBuilderRecursiveDivision();
+		builder.buildOrder(order);
+		builder.run();
+		Maze maze = order.getMaze();
+		assertNotNull(maze);
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++)
+				assertFalse(maze.getFloorplan().isInRoom(x, y));
+		}
+		MazeFactoryTest.assertPerfectMaze(maze);
+	}
+	/**
+	 * Test case: the number of threads does not matter
+	 * <p>
+	 * Method under test: generatePathways
+	 * <p>
+	 * Correct behavior: pools with one and with four threads give the same
+	 * floorplan for a seed, a different seed gives a different one.
+	 */
+	@Test
+	public final void testDeterministic() {
+		final int skill = 15; // large enough for areas to be divided in parallel
+		ForkJoinPool single = new ForkJoinPool(1);
+		ForkJoinPool parallel = new ForkJoinPool(4);
+		try {
+			Floorplan expected = generate(single, skill, 1);
+			assertTrue(expected.equals(generate(parallel, skill, 1)));
+			assertTrue(expected.equals(generate(ForkJoinPool.commonPool(), skill, 1)));
+			assertFalse(expected.equals(generate(parallel, skill, 2)));
+		} finally {
+			single.shutdown();
+			parallel.shutdown();
+		}
+	}
+	private static Floorplan generate(ForkJoinPool pool, int skill, int seed) {
+		StubOrder order = new StubOrder();
+		order.setRoomOption(true);
+		order.setSkillLevel(skill);
+		order.set_seed(seed);
+		MazeBuilder builder = new MazeBuilderRecursiveDivision(pool);
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		builder.generatePathways();
+		return builder.floorplan;
+	}
+}
@@ -0,0 +1,218 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests the navigation support of the MazeContainer for a delivered maze.
+ */
+public class MazeContainerTest {
+
+	private Maze maze;
+	private int width;
+	private int height;
+
+	/**
+	 * We use a maze with rooms such that positions can have
+	 * more than one neighbor that is closer to the exit.
+	 */
+	@Before
+	public void setUp() {
+		maze = MazeFactoryTest.orderMaze(Builder.DFS, false, 4, 9, Floorplan::new);
+		width = maze.getWidth();
+		height = maze.getHeight();
+	}
+	/**
+	 * Test case: next hop for every position
+	 * <p>
+	 * Method under test: getNextHopDirection, getNeighborCloserToExit
+	 * <p>
+	 * Correct behavior: the direction leads through an opening to the first
+	 * neighbor in the order of CardinalDirection.values() that is one step 
+	 * closer to the exit, there is no direction at the exit.
+	 */
+	@Test
+	public final void testNextHopDirection() {
+		assertNextHops();
+	}
+	/**
+	 * Test case: next hops after distances are repaired in place
+	 * <p>
+	 * Method under test: getNextHopDirection, getNeighborCloserToExit
+	 * <p>
+	 * Correct behavior: after each wallboard is deleted and the distances
+	 * are repaired through getMazedists(), next hops agree with the new distances.
+	 */
+	@Test
+	public final void testNextHopDirectionAfterRepair() {
+		Floorplan plan = maze.getFloorplan();
+		Distance dists = maze.getMazedists();
+		Random random = new Random(5);
+		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.East);
+		for (int i = 0; i < 30; i++) {
+			// pick an internal wallboard that is up, only deletions keep every position reachable
+			CardinalDirection cd;
+			int x;
+			int y;
+			do {
+				cd = random.nextBoolean() ? CardinalDirection.East : CardinalDirection.South;
+				x = random.nextInt(CardinalDirection.East == cd ? width-1 : width);
+				y = random.nextInt(CardinalDirection.South == cd ? height-1 : height);
+			} while (!maze.hasWall(x, y, cd));
+			wallboard.setLocationDirection(x, y, cd);
+			plan.deleteWallboard(wallboard);
+			dists.repairAfterWallboardDeleted(plan, wallboard);
+			assertNextHops();
+		}
+	}
+	/**
+	 * Checks that the direction of each position leads through an opening to the first
+	 * neighbor in the order of CardinalDirection.values() that is one step 
+	 * closer to the exit and that there is no direction at the exit.
+	 */
+	private void assertNextHops() {
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				CardinalDirection cd = maze.getNextHopDirection(x, y);
+				int[] neighbor = maze.getNeighborCloserToExit(x, y);
+				if (1 == maze.getDistanceToExit(x, y)) {
+					assertNull(cd);
+					assertNull(neighbor);
+					continue;
+				}
+				CardinalDirection expected = null;
+				for (CardinalDirection c : CardinalDirection.values()) {
+					int[] dir = c.getDirection();
+					if (!maze.hasWall(x, y, c) && 
+							maze.getDistanceToExit(x+dir[0], y+dir[1]) < maze.getDistanceToExit(x, y)) {
+						expected = c;
+						break;
+					}
+				}
+				assertEquals(expected, cd);
+				int[] dir = cd.getDirection();
+				assertEquals(x + dir[0], neighbor[0]);
+				assertEquals(y + dir[1], neighbor[1]);
+			}
+		}
+	}
+	/**
+	 * Test case: solution path from the starting position
+	 * <p>
+	 * Method under test: getSolutionPath
+	 * <p>
+	 * Correct behavior: the path starts at the given position, ends at the exit,
+	 * and each step reduces the distance to the exit by one.
+	 */
+	@Test
+	public final void testSolutionPath() {
+		int[] start = maze.getStartingPosition();
+		Iterator<int[]> path = maze.getSolutionPath(start[0], start[1]);
+		assertTrue(path.hasNext());
+		int[] position = path.next();
+		assertEquals(start[0], position[0]);
+		assertEquals(start[1], position[1]);
+		int expected = maze.getDistanceToExit(start[0], start[1]);
+		int steps = 1;
+		while (path.hasNext()) {
+			position = path.next();
+			expected--;
+			steps++;
+			assertEquals(expected, maze.getDistanceToExit(position[0], position[1]));
+		}
+		assertEquals(1, expected);
+		assertTrue(maze.getFloorplan().isExitPosition(position[0], position[1]));
+		assertEquals(maze.getDistanceToExit(start[0], start[1]), steps);
+		// the exit itself has a path of length one
+		path = maze.getSolutionPath(position[0], position[1]);
+		path.next();
+		assertFalse(path.hasNext());
+	}
+	/**
+	 * Test case: paths between random pairs of positions
+	 * <p>
+	 * Method under test: findPath
+	 * <p>
+	 * Correct behavior: the path goes through openings only, 
+	 * ends at the target and has as many steps as the shortest path.
+	 */
+	@Test
+	public final void testFindPath() {
+		Distance d = new Distance(width, height);
+		Random random = new Random(4);
+		CardinalDirection[] directions = CardinalDirection.values();
+		for (int i = 0; i < 40; i++) {
+			int fromX = random.nextInt(width);
+			int fromY = random.nextInt(height);
+			d.computeDistanceField(maze.getFloorplan(), new int[] {fromX}, new int[] {fromY}, false);
+			for (int j = 0; j < 10; j++) {
+				int toX = random.nextInt(width);
+				int toY = random.nextInt(height);
+				byte[] path = maze.findPath(fromX, fromY, toX, toY);
+				assertEquals(d.getDistanceValue(toX, toY) - 1, path.length);
+				int x = fromX;
+				int y = fromY;
+				for (byte step : path) {
+					assertFalse(maze.hasWall(x, y, directions[step]));
+					int[] dir = directions[step].getDirection();
+					x += dir[0];
+					y += dir[1];
+				}
+				assertEquals(toX, x);
+				assertEquals(toY, y);
+			}
+		}
+		assertEquals(0, maze.findPath(2, 3, 2, 3).length);
+	}
+	/**
+	 * Test case: positions that are not connected
+	 * <p>
+	 * Method under test: findPath
+	 * <p>
+	 * Correct behavior: there is no path.
+	 */
+	@Test
+	public final void testFindPathUnreachable() {
+		Floorplan plan = maze.getFloorplan();
+		// enclose the starting position in a box
+		int[] start = maze.getStartingPosition();
+		for (CardinalDirection cd : CardinalDirection.values()) {
+			plan.addWallboard(new Wallboard(start[0], start[1], cd), maze.isValidPosition(
+					start[0] + cd.getDirection()[0], start[1] + cd.getDirection()[1]));
+		}
+		int[] exit = maze.getMazedists().getExitPosition();
+		assertNull(maze.findPath(start[0], start[1], exit[0], exit[1]));
+		assertNull(maze.findPath(exit[0], exit[1], start[0], start[1]));
+	}
+	/**
+	 * Test case: search buffers of a thread outlive the query
+	 * <p>
+	 * Method under test: PathFinder.findPath
+	 * <p>
+	 * Correct behavior: the buffers do not keep the floorplan
+	 * of the last query from being collected.
+	 */
+	@Test
+	public final void testQueriedFloorplanCanBeCollected() throws InterruptedException {
+		Floorplan plan = new Floorplan(width, height);
+		assertEquals(width + height - 2, PathFinder.findPath(plan, 0, 0, width-1, height-1).length);
+		WeakReference<Floorplan> reference = new WeakReference<>(plan);
+		plan = null;
+		for (int i = 0; i < 50 && null != reference.get(); i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertTrue(null == reference.get());
+	}
+}
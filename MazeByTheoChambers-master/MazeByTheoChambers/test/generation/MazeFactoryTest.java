@@ -41,7 +41,7 @@ public class MazeFactoryTest {
 	public void initialize_test () {
 			factory = new MazeFactory();
 			order = new StubOrder();
-			order.setBuildOption(Builder.Prim); //default 
+			order.setBuildOption(getBuilder()); //default is Prim
 			order.setRoomOption(false);
 			order.setSkillLevel(5); 
 			order.set_seed(7); 
@@ -49,6 +49,13 @@ public class MazeFactoryTest {
 			factory.waitTillDelivered();
 			current_maze = order.getMaze();
 	}
+	/**
+	 * Gives the builder to test, subclasses override this method to run all tests with another builder.
+	 * @return builder for the order
+	 */
+	protected Builder getBuilder() {
+		return Builder.Prim;
+	}
 	// we check to make sure none of the objects created are null 
 	@Test 
 	public void not_null () {
@@ -174,5 +181,57 @@ public class MazeFactoryTest {
 		//change as needed, we test if count == 0 for a perfect maze, otherwise count better be > 0 
 		//count !=0 currently as I am testing for mazes generated with rooms 
 	assertTrue(count!=0);
-	}			
+	}
+	/**Orders a maze from a new factory and waits for it.
+	 * @param builder the algorithm to use
+	 * @param perfect true for a maze without rooms
+	 * @param skill the skill level
+	 * @param seed the seed for the random number generator
+	 * @param provider creates the floorplan of the maze
+	 * @return the delivered maze
+	 */
+	static Maze orderMaze(Builder builder, boolean perfect, int skill, int seed, MazeBuilder.FloorplanProvider provider) {
+		MazeFactory factory = new MazeFactory();
+		factory.setFloorplanProvider(provider);
+		return orderMaze(factory, builder, perfect, skill, seed);
+	}
+	/**Orders a maze from the given factory and waits for it,
+	 * for tests that need other settings of the factory.
+	 * @param factory takes the order
+	 * @param builder the algorithm to use
+	 * @param perfect true for a maze without rooms
+	 * @param skill the skill level
+	 * @param seed the seed for the random number generator
+	 * @return the delivered maze
+	 */
+	static Maze orderMaze(MazeFactory factory, Builder builder, boolean perfect, int skill, int seed) {
+		StubOrder order = new StubOrder();
+		order.setBuildOption(builder);
+		order.setRoomOption(perfect);
+		order.setSkillLevel(skill);
+		order.set_seed(seed);
+		factory.order(order);
+		factory.waitTillDelivered();
+		assertNotNull(order.getMaze());
+		return order.getMaze();
+	}
+	/**Checks that a maze is perfect, i.e., its openings form a spanning tree over all cells.
+	 * A spanning tree has one opening less than there are cells,
+	 * and with every cell reachable from the exit there can be no loops.
+	 * @param maze the maze to check
+	 */
+	static void assertPerfectMaze(Maze maze) {
+		Floorplan plan = maze.getFloorplan();
+		int openings = 0;
+		for (int w = 0; w < maze.getWidth(); w++) {
+			for (int h = 0; h < maze.getHeight(); h++) {
+				assertTrue(maze.getDistanceToExit(w, h) != Distance.INFINITY);
+				if (w < maze.getWidth()-1 && plan.hasNoWall(w, h, CardinalDirection.East))
+					openings++;
+				if (h < maze.getHeight()-1 && plan.hasNoWall(w, h, CardinalDirection.South))
+					openings++;
+			}
+		}
+		assertEquals(maze.getWidth()*maze.getHeight()-1, openings);
+	}
 }
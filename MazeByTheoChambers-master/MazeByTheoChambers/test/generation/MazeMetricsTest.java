@@ -0,0 +1,126 @@
+package generation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests the maze statistics against straightforward computations
+ * that use Floorplan.hasWall for each cell and direction.
+ */
+public class MazeMetricsTest {
+
+	/**
+	 * Test case: statistics of a generated maze with rooms
+	 * <p>
+	 * Method under test: MazeContainer.getMetrics
+	 * <p>
+	 * Correct behavior: counts match a cell by cell computation, 
+	 * the solution length matches the distance of the starting position
+	 * and the diameter is at least the solution length.
+	 */
+	@Test
+	public final void testMetricsOfGeneratedMaze() {
+		MazeContainer maze = (MazeContainer)MazeFactoryTest.orderMaze(Builder.DFS, false, 5, 21, Floorplan::new);
+		MazeMetrics metrics = maze.getMetrics();
+		assertSame(metrics, maze.getMetrics());
+		checkCounts(maze.getFloorplan(), metrics);
+		int[] start = maze.getStartingPosition();
+		assertEquals(maze.getDistanceToExit(start[0], start[1]) - 1, metrics.getSolutionLength());
+		assertTrue(metrics.getDiameter() >= maze.getMazedists().getMaxDistance() - 1);
+		assertTrue(metrics.getRoomCoverage() > 0);
+	}
+	/**
+	 * Test case: sequential and parallel analysis of a large floorplan
+	 * <p>
+	 * Method under test: MazeMetrics.analyze
+	 * <p>
+	 * Correct behavior: both modes deliver the same statistics, 
+	 * in particular for vertical corridors that cross bands.
+	 */
+	@Test
+	public final void testParallelAnalysis() {
+		int w = 120;
+		int h = 200;
+		Floorplan floorplan = new Floorplan(w, h);
+		floorplan.initialize();
+		// delete random wallboards, columns with an even x coordinate 
+		// are long vertical corridors that cross all bands
+		Random random = new Random(2);
+		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.South);
+		for (int x = 0; x < w; x++) {
+			for (int y = 0; y < h; y++) {
+				if (y < h-1 && (x % 2 == 0 || random.nextInt(3) > 0)) {
+					wallboard.setLocationDirection(x, y, CardinalDirection.South);
+					floorplan.deleteWallboard(wallboard);
+				}
+				if (x < w-1 && random.nextInt(4) == 0) {
+					wallboard.setLocationDirection(x, y, CardinalDirection.East);
+					floorplan.deleteWallboard(wallboard);
+				}
+			}
+		}
+		// random deletions need not connect all cells, use a corner as exit
+		Distance d = new Distance(w, h);
+		d.computeDistanceField(floorplan, new int[] {w-1}, new int[] {h-1}, false);
+		MazeMetrics sequential = MazeMetrics.analyze(floorplan, d, 0, 0, Distance.Traversal.Sequential);
+		MazeMetrics parallel = MazeMetrics.analyze(floorplan, d, 0, 0, Distance.Traversal.Parallel);
+		checkCounts(floorplan, sequential);
+		checkCounts(floorplan, parallel);
+		assertEquals(h, parallel.getLongestCorridor());
+		assertEquals(sequential.toString(), parallel.toString());
+	}
+	/**
+	 * Compares counts with a computation that uses hasWall.
+	 */
+	private static void checkCounts(Floorplan floorplan, MazeMetrics metrics) {
+		int w = floorplan.getWidth();
+		int h = floorplan.getHeight();
+		int deadEnds = 0;
+		int junctions = 0;
+		int rooms = 0;
+		int[] corridors = new int[Math.max(w, h) + 1];
+		for (int x = 0; x < w; x++) {
+			for (int y = 0; y < h; y++) {
+				int degree = 0;
+				for (CardinalDirection cd : CardinalDirection.values()) {
+					int[] dir = cd.getDirection();
+					int nx = x + dir[0];
+					int ny = y + dir[1];
+					if (!floorplan.hasWall(x, y, cd) && 0 <= nx && nx < w && 0 <= ny && ny < h)
+						degree++;
+				}
+				if (1 == degree)
+					deadEnds++;
+				if (degree > 2)
+					junctions++;
+				if (floorplan.isInRoom(x, y))
+					rooms++;
+				// a corridor starts where there is no opening towards west or north
+				if (0 == x || floorplan.hasWall(x, y, CardinalDirection.West)) {
+					int length = 1;
+					while (x + length < w && !floorplan.hasWall(x + length - 1, y, CardinalDirection.East))
+						length++;
+					MazeMetrics.countCorridor(corridors, length);
+				}
+				if (0 == y || floorplan.hasWall(x, y, CardinalDirection.North)) {
+					int length = 1;
+					while (y + length < h && !floorplan.hasWall(x, y + length - 1, CardinalDirection.South))
+						length++;
+					MazeMetrics.countCorridor(corridors, length);
+				}
+			}
+		}
+		assertEquals(deadEnds, metrics.getDeadEnds());
+		assertEquals(junctions, metrics.getJunctions());
+		assertEquals((double)rooms / (w*h), metrics.getRoomCoverage(), 1e-9);
+		assertArrayEquals(corridors, metrics.getCorridorLengthHistogram());
+	}
+}
@@ -0,0 +1,71 @@
+package generation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests that the off-heap floorplan can replace a regular floorplan
+ * for maze generation and that its memory can be released.
+ */
+public class OffHeapFloorplanTest {
+
+	private Maze generate(MazeBuilder.FloorplanProvider provider) {
+		return MazeFactoryTest.orderMaze(Builder.DFS, false, 5, 17, provider);
+	}
+	/**
+	 * Test case: generate the same maze with a regular and an off-heap floorplan
+	 * <p>
+	 * Method under test: MazeFactory.setFloorplanProvider, OffHeapFloorplan, equals
+	 * <p>
+	 * Correct behavior: both mazes have equal floorplans and the same distances.
+	 */
+	@Test
+	public final void testSameMaze() {
+		Maze regular = generate(Floorplan::new);
+		Maze offHeap = generate(OffHeapFloorplan::new);
+		assertTrue(offHeap.getFloorplan() instanceof OffHeapFloorplan);
+		assertTrue(regular.getFloorplan().equals(offHeap.getFloorplan()));
+		assertTrue(offHeap.getFloorplan().equals(regular.getFloorplan()));
+		for (int x = 0; x < regular.getWidth(); x++) {
+			for (int y = 0; y < regular.getHeight(); y++) {
+				assertEquals(regular.getDistanceToExit(x, y), offHeap.getDistanceToExit(x, y));
+			}
+		}
+		((OffHeapFloorplan)offHeap.getFloorplan()).close();
+	}
+	/**
+	 * Test case: copy, update and close
+	 * <p>
+	 * Method under test: OffHeapFloorplan(Floorplan), close, isClosed
+	 * <p>
+	 * Correct behavior: copy carries the same values, updates affect a single cell,
+	 * access after close fails, a second close has no effect.
+	 */
+	@Test
+	public final void testCopyAndClose() {
+		Floorplan floorplan = new Floorplan(7, 5);
+		floorplan.initialize();
+		OffHeapFloorplan copy = new OffHeapFloorplan(floorplan);
+		assertTrue(floorplan.equals(copy));
+		copy.setCellAsVisited(3, 2);
+		assertFalse(floorplan.equals(copy));
+		assertEquals(floorplan.getValueOfCell(3, 2) & ~Floorplan.CW_VISITED, copy.getValueOfCell(3, 2));
+		assertEquals(floorplan.getValueOfCell(4, 2), copy.getValueOfCell(4, 2));
+		assertFalse(copy.isClosed());
+		copy.close();
+		assertTrue(copy.isClosed());
+		try {
+			copy.getValueOfCell(0, 0);
+			fail("access after close must fail");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		copy.close();
+	}
+}
@@ -0,0 +1,57 @@
+package generation;
+
+import gui.Constants;
+
+/**
+ * Compares Prim's algorithm with a frontier of primitive ints in
+ * MazeBuilderPrimFrontier against the list of Wallboard objects
+ * in MazeBuilderPrim for each skill level.
+ *
+ * This is a benchmark to run by hand, not a test case.
+ * Both builders work on perfect mazes without rooms such that the time
+ * goes to the spanning tree. Each builder takes the order once, then
+ * initializes its floorplan and generates pathways repeatedly for a fixed
+ * amount of time after a warm up; the random sequence simply continues.
+ * Times are in microseconds per maze, including the initialization
+ * of the floorplan, e.g.,
+ * {@code java -cp bin:test generation.PrimFrontierBenchmark}.
+ */
+public class PrimFrontierBenchmark {
+
+	private static final long DURATION = 500_000_000L; // nanoseconds per measurement
+
+	public static void main(String[] args) {
+		System.out.println("skill\twidth\theight\tlist\tfrontier\tspeedup");
+		for (int skill = 0; skill < Constants.SKILL_X.length; skill++) {
+			final double list = measure(new MazeBuilderPrim(), skill);
+			final double frontier = measure(new MazeBuilderPrimFrontier(), skill);
+			System.out.printf("%d\t%d\t%d\t%.1f\t%.1f\t%.2f%n", skill,
+					Constants.SKILL_X[skill], Constants.SKILL_Y[skill], list, frontier, list / frontier);
+		}
+	}
+	/**
+	 * Generates pathways repeatedly for a fixed amount of time after a warm up.
+	 * @return microseconds per maze
+	 */
+	private static double measure(MazeBuilder builder, int skill) {
+		final StubOrder order = new StubOrder();
+		order.setRoomOption(true); // perfect, no rooms
+		order.setSkillLevel(skill);
+		order.set_seed(skill);
+		builder.buildOrder(order);
+		run(builder); // warm up
+		return run(builder);
+	}
+	private static double run(MazeBuilder builder) {
+		final long t0 = System.nanoTime();
+		long t;
+		int count = 0;
+		do {
+			builder.floorplan.initialize();
+			builder.generatePathways();
+			count++;
+			t = System.nanoTime() - t0;
+		} while (t < DURATION);
+		return t / 1e3 / count;
+	}
+}
@@ -0,0 +1,155 @@
+package generation;
+
+import java.util.Random;
+
+import gui.Constants;
+
+/**
+ * Compares room placement with the index over rooms in Floorplan
+ * against the former scan over all cells of a candidate area,
+ * for each skill level and for a few larger mazes with many rooms.
+ * It measures the placement of all rooms and, on its own, the check
+ * for overlapping rooms at random positions after all rooms are placed.
+ *
+ * This is a benchmark to run by hand, not a test case.
+ * Rooms are placed as MazeBuilder.generateRooms does it on an initialized floorplan,
+ * the scan is obtained with a Floorplan subclass that checks cells one by one.
+ * Each placement is repeated for a fixed amount of time after a warm up,
+ * times are in microseconds for placing all rooms of a maze and
+ * in nanoseconds for a single check, e.g.,
+ * {@code java -cp bin:test generation.RoomPlacementBenchmark}.
+ */
+public class RoomPlacementBenchmark {
+
+	/**
+	 * Floorplan with the former check for overlapping rooms.
+	 */
+	private static final class Scanning extends Floorplan {
+		Scanning(int w, int h) {
+			super(w, h);
+		}
+		@Override
+		public boolean areaOverlapsWithRoom(int rx, int ry, int rxl, int ryl) {
+			if (rx-1 < 0 || ry-1 < 0 || rxl+1 >= getWidth() || ryl+1 >= getHeight())
+				return true;
+			for (int x = rx-1; x <= rxl+1; x++) {
+				for (int y = ry-1; y <= ryl+1; y++) {
+					if (isInRoom(x, y))
+						return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final long DURATION = 200_000_000L; // nanoseconds per measurement
+	// larger mazes in addition to skill levels, width, height and number of rooms
+	private static final int[][] LARGE = { {600, 480, 640}, {1200, 960, 2560}, {2400, 1920, 10240} };
+	private static final int CHECKS = 1000; // number of checks per measurement
+	private static int placed; // rooms placed and overlaps found, keeps the JIT from removing the work
+
+	public static void main(String[] args) {
+		System.out.println("width\theight\trooms\tplace scan\tplace index\tcheck scan\tcheck index");
+		// skill level 0 is too small for any room
+		for (int skill = 1; skill < Constants.SKILL_X.length; skill++)
+			run(Constants.SKILL_X[skill], Constants.SKILL_Y[skill], Constants.SKILL_ROOMS[skill]);
+		for (int[] size : LARGE)
+			run(size[0], size[1], size[2]);
+		System.out.println("(" + placed + ")");
+	}
+	private static void run(int w, int h, int rooms) {
+		final Runnable scan = () -> placeRooms(new Scanning(w, h), rooms);
+		final Runnable index = () -> placeRooms(new Floorplan(w, h), rooms);
+		final Floorplan scanning = new Scanning(w, h);
+		final Floorplan indexed = new Floorplan(w, h);
+		placeRooms(scanning, rooms);
+		placeRooms(indexed, rooms);
+		final int[] areas = getAreas(w, h);
+		final Runnable checkScan = () -> checkAreas(scanning, areas);
+		final Runnable checkIndex = () -> checkAreas(indexed, areas);
+		System.out.printf("%d\t%d\t%d", w, h, rooms);
+		for (Runnable operation : new Runnable[] { scan, index }) {
+			measure(operation); // warm up
+			System.out.printf("\t%.1f", measure(operation));
+		}
+		for (Runnable operation : new Runnable[] { checkScan, checkIndex }) {
+			measure(operation);
+			System.out.printf("\t%.1f", measure(operation) * 1e3 / CHECKS);
+		}
+		System.out.println();
+	}
+	/**
+	 * Gives corners of areas of random size at random positions,
+	 * four values per area.
+	 */
+	private static int[] getAreas(int width, int height) {
+		final Random random = new Random(17);
+		final int[] areas = new int[4*CHECKS];
+		for (int i = 0; i < areas.length; i += 4) {
+			final int rw = nextIntWithinInterval(random, MazeBuilder.MIN_ROOM_DIMENSION, MazeBuilder.MAX_ROOM_DIMENSION);
+			final int rh = nextIntWithinInterval(random, MazeBuilder.MIN_ROOM_DIMENSION, MazeBuilder.MAX_ROOM_DIMENSION);
+			areas[i] = nextIntWithinInterval(random, 1, width-rw-1);
+			areas[i+1] = nextIntWithinInterval(random, 1, height-rh-1);
+			areas[i+2] = areas[i] + rw - 1;
+			areas[i+3] = areas[i+1] + rh - 1;
+		}
+		return areas;
+	}
+	/**
+	 * Checks the given areas for rooms.
+	 */
+	private static void checkAreas(Floorplan floorplan, int[] areas) {
+		for (int i = 0; i < areas.length; i += 4) {
+			if (floorplan.areaOverlapsWithRoom(areas[i], areas[i+1], areas[i+2], areas[i+3]))
+				placed++;
+		}
+	}
+	/**
+	 * Runs the operation repeatedly for a fixed amount of time.
+	 * @return microseconds per operation
+	 */
+	private static double measure(Runnable operation) {
+		final long t0 = System.nanoTime();
+		long t;
+		int count = 0;
+		do {
+			operation.run();
+			count++;
+			t = System.nanoTime() - t0;
+		} while (t < DURATION);
+		return t / 1e3 / count;
+	}
+	/**
+	 * Places rooms as MazeBuilder does it, with the same random sequence of
+	 * room positions each time, doors still come from SingleRandom.
+	 * The floorplan is initialized as part of the placement for both variants.
+	 */
+	private static void placeRooms(Floorplan floorplan, int rooms) {
+		final Random random = new Random(13);
+		final int width = floorplan.getWidth();
+		final int height = floorplan.getHeight();
+		floorplan.initialize();
+		int tries = 0;
+		int result = 0;
+		while (tries < MazeBuilder.MAX_TRIES && result < rooms) {
+			final int rw = nextIntWithinInterval(random, MazeBuilder.MIN_ROOM_DIMENSION, MazeBuilder.MAX_ROOM_DIMENSION);
+			final int rh = nextIntWithinInterval(random, MazeBuilder.MIN_ROOM_DIMENSION, MazeBuilder.MAX_ROOM_DIMENSION);
+			if (rw >= width-4 || rh >= height-4) {
+				tries++;
+				continue;
+			}
+			final int rx = nextIntWithinInterval(random, 1, width-rw-1);
+			final int ry = nextIntWithinInterval(random, 1, height-rh-1);
+			if (floorplan.areaOverlapsWithRoom(rx, ry, rx+rw-1, ry+rh-1)) {
+				tries++;
+				continue;
+			}
+			floorplan.markAreaAsRoom(rw, rh, rx, ry, rx+rw-1, ry+rh-1);
+			result++;
+		}
+		placed += result;
+	}
+	private static int nextIntWithinInterval(Random random, int lowerBound, int upperBound) {
+		return lowerBound + random.nextInt(upperBound - lowerBound + 1);
+	}
+}
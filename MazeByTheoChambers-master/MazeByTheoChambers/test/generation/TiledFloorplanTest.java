@@ -0,0 +1,167 @@
+package generation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import generation.Order.Builder;
+
+/**
+ * Tests the lazy allocation and eviction of chunks and the maze content
+ * that the seeded chunk source generates.
+ */
+public class TiledFloorplanTest {
+	// dimensions that are not a multiple of the chunk size
+	private static final int WIDTH = 150;
+	private static final int HEIGHT = 100;
+
+	/**
+	 * Test case: maze generated chunk by chunk
+	 * <p>
+	 * Method under test: SeededChunkSource.generate
+	 * <p>
+	 * Correct behavior: wallboards on both sides of an edge match,
+	 * also across chunk edges, borders enclose the maze,
+	 * all cells are connected and there are no loops.
+	 */
+	@Test
+	public final void testSeededMaze() {
+		TiledFloorplan floorplan = new TiledFloorplan(WIDTH, HEIGHT, new SeededChunkSource(WIDTH, HEIGHT, 5), Integer.MAX_VALUE);
+		int openings = 0;
+		for (int x = 0; x < WIDTH; x++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				if (x < WIDTH-1) {
+					assertEquals(floorplan.hasWall(x, y, CardinalDirection.East), floorplan.hasWall(x+1, y, CardinalDirection.West));
+					if (floorplan.hasNoWall(x, y, CardinalDirection.East))
+						openings++;
+				}
+				if (y < HEIGHT-1) {
+					assertEquals(floorplan.hasWall(x, y, CardinalDirection.South), floorplan.hasWall(x, y+1, CardinalDirection.North));
+					if (floorplan.hasNoWall(x, y, CardinalDirection.South))
+						openings++;
+				}
+				assertFalse(floorplan.isInRoom(x, y));
+			}
+		}
+		// a spanning tree has one edge less than it has nodes
+		assertEquals(WIDTH*HEIGHT - 1, openings);
+		for (int x = 0; x < WIDTH; x++) {
+			assertTrue(floorplan.isPartOfBorder(new Wallboard(x, 0, CardinalDirection.North)));
+			assertTrue(floorplan.isPartOfBorder(new Wallboard(x, HEIGHT-1, CardinalDirection.South)));
+		}
+		for (int y = 0; y < HEIGHT; y++) {
+			assertTrue(floorplan.isPartOfBorder(new Wallboard(0, y, CardinalDirection.West)));
+			assertTrue(floorplan.isPartOfBorder(new Wallboard(WIDTH-1, y, CardinalDirection.East)));
+		}
+		assertTrue(floorplan.isExitPosition(WIDTH-1, HEIGHT-1));
+		Distance d = new Distance(WIDTH, HEIGHT);
+		d.computeDistanceField(floorplan, new int[] {WIDTH-1}, new int[] {HEIGHT-1}, false);
+		for (int x = 0; x < WIDTH; x++) {
+			for (int y = 0; y < HEIGHT; y++) {
+				assertTrue(Distance.INFINITY != d.getDistanceValue(x, y));
+			}
+		}
+	}
+	/**
+	 * Test case: evict and regenerate chunks
+	 * <p>
+	 * Method under test: evictCleanChunks, capacity, getNumberOfAllocatedChunks
+	 * <p>
+	 * Correct behavior: chunks are allocated when first read, regenerated
+	 * chunks have the same content, changed chunks are kept,
+	 * the capacity limits the number of clean chunks.
+	 */
+	@Test
+	public final void testEviction() {
+		SeededChunkSource source = new SeededChunkSource(WIDTH, HEIGHT, 11);
+		TiledFloorplan floorplan = new TiledFloorplan(WIDTH, HEIGHT, source, 2);
+		TiledFloorplan reference = new TiledFloorplan(WIDTH, HEIGHT, source, Integer.MAX_VALUE);
+		assertEquals(0, floorplan.getNumberOfAllocatedChunks());
+		floorplan.getValueOfCell(70, 70);
+		assertEquals(1, floorplan.getNumberOfAllocatedChunks());
+		// touching all cells goes through all 6 chunks, at most 2 stay
+		assertTrue(floorplan.equals(reference));
+		assertEquals(2, floorplan.getNumberOfAllocatedChunks());
+		assertEquals(6, reference.getNumberOfAllocatedChunks());
+		// a change makes a chunk dirty
+		floorplan.setInRoomToOne(1, 1);
+		assertEquals(Floorplan.CW_IN_ROOM, floorplan.getValueOfCell(1, 1) & Floorplan.CW_IN_ROOM);
+		assertFalse(floorplan.equals(reference));
+		for (int x = 0; x < WIDTH; x += TiledFloorplan.CHUNK_SIZE)
+			floorplan.getValueOfCell(x, HEIGHT-1);
+		assertTrue(floorplan.isInRoom(1, 1));
+		assertEquals(6, reference.evictCleanChunks());
+		assertEquals(0, reference.getNumberOfAllocatedChunks());
+		floorplan.evictCleanChunks();
+		assertEquals(1, floorplan.getNumberOfAllocatedChunks());
+		assertTrue(floorplan.isInRoom(1, 1));
+	}
+	/**
+	 * Test case: threads read a floorplan that keeps few chunks
+	 * <p>
+	 * Method under test: getValueOfCell with allocation and eviction,
+	 * Distance.computeDistances with parallel traversal
+	 * <p>
+	 * Correct behavior: each thread reads the same values as from a floorplan
+	 * that keeps all chunks, no more chunks than the capacity stay in memory,
+	 * a parallel traversal gives the same distances as a sequential one.
+	 */
+	@Test
+	public final void testConcurrentReaders() throws InterruptedException {
+		final SeededChunkSource source = new SeededChunkSource(WIDTH, HEIGHT, 13);
+		final TiledFloorplan floorplan = new TiledFloorplan(WIDTH, HEIGHT, source, 2);
+		final TiledFloorplan reference = new TiledFloorplan(WIDTH, HEIGHT, source, Integer.MAX_VALUE);
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final Random random = new Random(t);
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					// random cells such that threads keep evicting each other's chunks
+					int x = random.nextInt(WIDTH);
+					int y = random.nextInt(HEIGHT);
+					if (floorplan.getValueOfCell(x, y) != reference.getValueOfCell(x, y))
+						failures.incrementAndGet();
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(0, failures.get());
+		assertTrue(floorplan.getNumberOfAllocatedChunks() <= 2);
+		Distance parallel = new Distance(WIDTH, HEIGHT);
+		Distance sequential = new Distance(WIDTH, HEIGHT);
+		assertArrayEquals(sequential.computeDistances(reference, Distance.Traversal.Sequential),
+				parallel.computeDistances(floorplan, Distance.Traversal.Parallel));
+		for (int x = 0; x < WIDTH; x++) {
+			for (int y = 0; y < HEIGHT; y++)
+				assertEquals(sequential.getDistanceValue(x, y), parallel.getDistanceValue(x, y));
+		}
+	}
+	/**
+	 * Test case: tiled floorplan without a source in place of a Floorplan
+	 * <p>
+	 * Method under test: MazeFactory.setFloorplanProvider with TiledFloorplan
+	 * <p>
+	 * Correct behavior: the same maze is generated as with a regular floorplan,
+	 * reading a cell does not allocate a chunk.
+	 */
+	@Test
+	public final void testDropIn() {
+		TiledFloorplan empty = new TiledFloorplan(WIDTH, HEIGHT);
+		assertEquals(0, empty.getValueOfCell(WIDTH-1, HEIGHT-1));
+		assertEquals(0, empty.getNumberOfAllocatedChunks());
+		assertTrue(generate(Floorplan::new).equals(generate(TiledFloorplan::new)));
+	}
+	private Floorplan generate(MazeBuilder.FloorplanProvider provider) {
+		return MazeFactoryTest.orderMaze(Builder.DFS, false, 6, 3, provider).getFloorplan();
+	}
+}